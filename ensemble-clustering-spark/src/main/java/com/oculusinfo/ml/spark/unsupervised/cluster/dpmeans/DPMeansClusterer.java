@@ -118,7 +118,7 @@ public class DPMeansClusterer extends BaseClusterer {
 
 	@Override
 	public SparkClusterResult doCluster(DataSet ds) {
-		distFunc = new DistanceFunction(this.typeDefs);
+		distFunc = new DistanceFunction(getDistancePlan());
 		clusterFactory = new ClusterFactory(this.typeDefs, this.onlineUpdate);
 		
 		// SparkDataSet needs to be passed in
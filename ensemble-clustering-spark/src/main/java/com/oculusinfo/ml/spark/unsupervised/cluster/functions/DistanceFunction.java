@@ -28,35 +28,31 @@ import java.io.Serializable;
 import java.util.Map;
 
 import com.oculusinfo.ml.Instance;
-import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.DistancePlan;
 import com.oculusinfo.ml.unsupervised.cluster.FeatureTypeDefinition;
 
 public class DistanceFunction implements Serializable {
 	private static final long serialVersionUID = 5075251184563041056L;
-	private Map<String, FeatureTypeDefinition> typeDefs;
+	private DistancePlan plan;
 	
 	public DistanceFunction(Map<String, FeatureTypeDefinition> typeDefs) {
-		this.typeDefs = typeDefs;
+		this(new DistancePlan(typeDefs.values()));
 	}
 	
-	@SuppressWarnings("unchecked")
+	public DistanceFunction(DistancePlan plan) {
+		this.plan = plan;
+	}
+	
+	// a failed distance is not caught here so that it fails the Spark task rather than returning a distance of 0
 	public double distance(Instance inst1, Instance inst2) {
-		double totalDist = 0;
-
-		try {
-			for (FeatureTypeDefinition typedef : typeDefs.values()) {
-				if (typedef.distFunc.getWeight() < 0.00001) continue;  // skip if weight is near zero
-				
-				Feature f1 = inst1.getFeature(typedef.featureName);
-				Feature f2 = inst2.getFeature(typedef.featureName);
-				if (f1 == null || f2 == null) continue;
-									
-				totalDist += typedef.distFunc.distance(f1, f2)  * typedef.distFunc.getWeight(); 	
-			}
-		}
-		catch (Exception e) {
-			// TODO - handle exception
-		}
-		return totalDist;
+		return plan.distance(inst1, inst2, false);
+	}
+	
+	/***
+	 * Return the distance between the instances, or any value greater than or equal to cutoff 
+	 * once the distance is known to be at least cutoff
+	 */
+	public double distance(Instance inst1, Instance inst2, double cutoff) {
+		return plan.distance(inst1, inst2, false, cutoff);
 	}
 }
\ No newline at end of file
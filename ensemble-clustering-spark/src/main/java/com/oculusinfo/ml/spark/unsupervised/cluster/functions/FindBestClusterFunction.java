@@ -61,7 +61,7 @@ public class FindBestClusterFunction implements Function<Tuple2<String, Instance
 		
 		for (String clusterId : clusters.keySet()) {
 			Instance cluster = clusters.get(clusterId);
-			double d = distFunc.distance(inst._2, cluster);
+			double d = distFunc.distance(inst._2, cluster, Math.min(bestScore, threshold));
 		
 			if (d < bestScore && d < threshold) {
 				bestScore = d;
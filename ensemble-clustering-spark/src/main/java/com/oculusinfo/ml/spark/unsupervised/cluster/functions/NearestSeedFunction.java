@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.spark.unsupervised.cluster.functions;
+
+import java.util.List;
+
+import org.apache.spark.api.java.function.Function;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Maps each instance to the index of its nearest k-means|| candidate, used to weight the 
+ * candidates by the number of instances nearest to them before they are reclustered.
+ * 
+ * @author slangevin
+ *
+ */
+public class NearestSeedFunction implements Function<Instance, Integer> {
+	private static final long serialVersionUID = 6594270138315530214L;
+	
+	private DistanceFunction distFunc;
+	private List<Instance> candidates;
+	
+	public NearestSeedFunction(DistanceFunction distFunc, List<Instance> candidates) {
+		this.distFunc = distFunc;
+		this.candidates = candidates;
+	}
+
+	@Override
+	public Integer call(Instance inst) throws Exception {
+		double min = Double.MAX_VALUE;
+		int best = 0;
+		for (int i=0; i < candidates.size(); i++) {
+			double d = distFunc.distance(inst, candidates.get(i));
+			if (d < min) {
+				min = d;
+				best = i;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.spark.unsupervised.cluster.functions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import scala.Tuple2;
+import org.apache.spark.api.java.function.Function2;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Samples the k-means|| candidates of a partition of instances paired with their costs.  Each 
+ * partition draws from its own random number generator seeded from the round seed and the 
+ * partition index so the sample is reproducible.
+ * 
+ * @author slangevin
+ *
+ */
+public class OversampleFunction implements Function2<Integer, Iterator<Tuple2<Instance, Double>>, Iterator<Instance>> {
+	private static final long serialVersionUID = -8160367360125813093L;
+	
+	// golden ratio increment to spread the partition seeds
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+	
+	private double scale;
+	private long seed;
+	
+	/***
+	 * Sample each instance with probability scale times its squared distance to the nearest candidate
+	 * 
+	 * @param scale the oversampling factor divided by the total cost
+	 * @param seed the seed of the sampling round
+	 */
+	public OversampleFunction(double scale, long seed) {
+		this.scale = scale;
+		this.seed = seed;
+	}
+
+	@Override
+	public Iterator<Instance> call(Integer partition, Iterator<Tuple2<Instance, Double>> costs) throws Exception {
+		Random prng = new Random(seed + SEED_INCREMENT * (partition + 1));
+		List<Instance> sampled = new ArrayList<Instance>();
+		
+		while (costs.hasNext()) {
+			Tuple2<Instance, Double> cost = costs.next();
+			if (prng.nextDouble() < cost._2 * scale) sampled.add(cost._1);
+		}
+		return sampled.iterator();
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.spark.unsupervised.cluster.functions;
+
+import java.util.List;
+
+import scala.Tuple2;
+import org.apache.spark.api.java.function.PairFunction;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Pairs each instance with its k-means|| cost, the squared distance to the nearest candidate k-mean.
+ * Used for the first sampling round, later rounds refine the costs with UpdateSeedCostFunction.
+ * 
+ * @author slangevin
+ *
+ */
+public class SeedCostFunction implements PairFunction<Instance, Instance, Double> {
+	private static final long serialVersionUID = 2731086462915570218L;
+	
+	private DistanceFunction distFunc;
+	private List<Instance> candidates;
+	
+	public SeedCostFunction(DistanceFunction distFunc, List<Instance> candidates) {
+		this.distFunc = distFunc;
+		this.candidates = candidates;
+	}
+	
+	/***
+	 * Return the squared distance of inst to the nearest candidate
+	 */
+	public static double cost(DistanceFunction distFunc, List<Instance> candidates, Instance inst) {
+		double min = Double.MAX_VALUE;
+		for (Instance c : candidates) {
+			double d = distFunc.distance(inst, c);
+			if (d < min) min = d;
+		}
+		return min * min;
+	}
+
+	@Override
+	public Tuple2<Instance, Double> call(Instance inst) throws Exception {
+		return new Tuple2<Instance, Double>(inst, cost(distFunc, candidates, inst));
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.spark.unsupervised.cluster.functions;
+
+import java.util.List;
+
+import scala.Tuple2;
+import org.apache.spark.api.java.function.PairFunction;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Refines the k-means|| cost of each instance with the candidates added in the last sampling round,
+ * so each round only computes the distances to the new candidates rather than to all of them.
+ * 
+ * @author slangevin
+ *
+ */
+public class UpdateSeedCostFunction implements PairFunction<Tuple2<Instance, Double>, Instance, Double> {
+	private static final long serialVersionUID = -3419305371285224069L;
+	
+	private DistanceFunction distFunc;
+	private List<Instance> newCandidates;
+	
+	public UpdateSeedCostFunction(DistanceFunction distFunc, List<Instance> newCandidates) {
+		this.distFunc = distFunc;
+		this.newCandidates = newCandidates;
+	}
+
+	@Override
+	public Tuple2<Instance, Double> call(Tuple2<Instance, Double> cost) throws Exception {
+		double c = SeedCostFunction.cost(distFunc, newCandidates, cost._1);
+		return (c < cost._2) ? new Tuple2<Instance, Double>(cost._1, c) : cost;
+	}
+}
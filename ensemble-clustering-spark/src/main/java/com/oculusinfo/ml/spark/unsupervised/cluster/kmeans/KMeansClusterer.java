@@ -24,6 +24,7 @@
  */
 package com.oculusinfo.ml.spark.unsupervised.cluster.kmeans;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import scala.Tuple2;
 import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
 import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.spark.SparkDataSet;
@@ -41,10 +43,16 @@ import com.oculusinfo.ml.spark.unsupervised.cluster.SparkClusterResult;
 import com.oculusinfo.ml.spark.unsupervised.cluster.functions.BestClusterFunction;
 import com.oculusinfo.ml.spark.unsupervised.cluster.functions.ComputeCentroidFunction;
 import com.oculusinfo.ml.spark.unsupervised.cluster.functions.DistanceFunction;
+import com.oculusinfo.ml.spark.unsupervised.cluster.functions.NearestSeedFunction;
+import com.oculusinfo.ml.spark.unsupervised.cluster.functions.OversampleFunction;
+import com.oculusinfo.ml.spark.unsupervised.cluster.functions.SeedCostFunction;
+import com.oculusinfo.ml.spark.unsupervised.cluster.functions.SumFunction;
+import com.oculusinfo.ml.spark.unsupervised.cluster.functions.UpdateSeedCostFunction;
 import com.oculusinfo.ml.unsupervised.cluster.BaseClusterer;
 import com.oculusinfo.ml.unsupervised.cluster.Cluster;
 import com.oculusinfo.ml.unsupervised.cluster.ClusterFactory;
 import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeansParallelInit;
 
 /***
  * The class implements a distributed version of the K-Means clustering algorithm.
@@ -59,6 +67,7 @@ public class KMeansClusterer extends BaseClusterer {
 	private String clustersPath = null;
 	private double convergenceTest;
 	private DistanceFunction distFunc;
+	private KMeansParallelInit parallelInit = null;
 	protected static Logger log = LoggerFactory.getLogger("com.oculusinfo");
 	
 	public KMeansClusterer(int k, int maxIterations, double convergenceTest) {
@@ -96,13 +105,85 @@ public class KMeansClusterer extends BaseClusterer {
 	public String getClustersPath() {
 		return this.clustersPath;
 	}
+	
+	/***
+	 * Select the initial k-means with k-means|| rather than a uniform random sample
+	 * 
+	 * @param parallelInit the k-means|| initializer or null to use a random sample
+	 */
+	public void setParallelInit(KMeansParallelInit parallelInit) {
+		this.parallelInit = parallelInit;
+	}
+	
+	public KMeansParallelInit getParallelInit() {
+		return parallelInit;
+	}
 
 	@Override
 	public ClusterResult doIncrementalCluster(DataSet ds, List<Cluster> clusters) {
 		throw new RuntimeException("doIncrementalCluster is not supported in Spark KMeansClusterer");
 	}
 	
+	/***
+	 * k-means|| method for selecting initial k-means where each sampling round is a distributed pass
+	 * over the data set and the weighted candidates are reclustered locally.  The cost of each instance 
+	 * is kept in a cached RDD and only compared against the candidates added in the last round.
+	 * 
+	 * @param ds
+	 * @return the initial kmeans
+	 */
+	private Map<String, Instance> initParallelKMeans(SparkDataSet ds) {
+		JavaRDD<Instance> points = ds.getRDD().values();
+		double l = parallelInit.getOversampling(k);
+		
+		List<Instance> candidates = new ArrayList<Instance>();
+		for (Tuple2<String, Instance> point : ds.getRDD().takeSample(false, 1, (int)parallelInit.nextSeed())) {
+			candidates.add(point._2);
+		}
+		
+		JavaPairRDD<Instance, Double> costs = null;
+		List<Instance> added = candidates;
+		double cost = 0;
+		
+		for (int round = 0; round < parallelInit.getRounds() && !candidates.isEmpty(); round++) {
+			// update the cost of each instance with the candidates added in the last round
+			if (costs == null || !added.isEmpty()) {
+				List<Instance> newCandidates = new ArrayList<Instance>(added);
+				JavaPairRDD<Instance, Double> updated = (costs == null) ? 
+						points.mapToPair( new SeedCostFunction(distFunc, newCandidates) ) : 
+						costs.mapToPair( new UpdateSeedCostFunction(distFunc, newCandidates) );
+				updated.cache();
+				cost = updated.values().reduce( new SumFunction() );
+				if (costs != null) costs.unpersist();
+				costs = updated;
+			}
+			if (cost <= 0) break;
+			
+			added = costs.mapPartitionsWithIndex( new OversampleFunction(l / cost, parallelInit.nextSeed()), false ).collect();
+			candidates.addAll(added);
+		}
+		if (costs != null) costs.unpersist();
+		log.info("k-means|| selected {} candidates", candidates.size());
+		
+		// weight each candidate by the number of instances nearest to it
+		Map<Integer, Long> counts = points.map( new NearestSeedFunction(distFunc, candidates) ).countByValue();
+		long[] weights = new long[candidates.size()];
+		for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+			weights[count.getKey()] = count.getValue();
+		}
+		
+		Map<String, Instance> kmeans = new HashMap<String, Instance>(k);
+		for (Instance inst : parallelInit.recluster(candidates, weights, k, getDistancePlan(), false)) {
+			Cluster c = this.createCluster();
+			c.add(inst);
+			kmeans.put(c.getId(), c);
+		}
+		return kmeans;
+	}
+	
 	private Map<String, Instance> initKMeans(SparkDataSet ds) {
+		if (parallelInit != null) return initParallelKMeans(ds);
+		
 		Map<String, Instance> kmeans = new HashMap<String, Instance>(k);
 		List<Tuple2<String, Instance>> kpoints = ds.getRDD().takeSample(false, k, (new Random()).nextInt());
 		
@@ -123,6 +204,8 @@ public class KMeansClusterer extends BaseClusterer {
 //		rdd.getRDD().persist(StorageLevel.MEMORY_AND_DISK());
 //		rdd.getRDD().cache();
 		
+		distFunc = new DistanceFunction(getDistancePlan());
+		
 		// generate the initial points for kmeans
 		Map<String, Instance> curKmeans = initKMeans(rdd);
 		ClusterFactory clusterFactory = new ClusterFactory(this.typeDefs, this.onlineUpdate);
@@ -130,8 +213,6 @@ public class KMeansClusterer extends BaseClusterer {
 		double distance = 1.0;
 		int iteration = 0;
 		
-		distFunc = new DistanceFunction(this.typeDefs);
-		
 		JavaPairRDD<String, Instance> bestCluster = null;
 		JavaPairRDD<String, Instance> kmeans = null;
 		
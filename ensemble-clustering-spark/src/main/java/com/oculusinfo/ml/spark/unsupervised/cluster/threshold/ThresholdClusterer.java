@@ -135,7 +135,7 @@ public class ThresholdClusterer extends BaseClusterer {
 		// cache dataset in memory
 //		rdd.getRDD().cache();
 		
-		distFunc = new DistanceFunction(this.typeDefs);
+		distFunc = new DistanceFunction(getDistancePlan());
 		ClusterFactory clusterFactory = new ClusterFactory(this.typeDefs, this.onlineUpdate);
 		
 		log.info("Starting threshold clusterer with threshold {}", threshold);
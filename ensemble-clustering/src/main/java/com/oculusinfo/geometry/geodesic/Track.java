@@ -37,6 +37,8 @@ abstract public class Track {
     private PositionCalculationParameters _parameters;
     private List<Position>                _points;
     private List<Double>                  _parameterization;
+    // _parameterization as primitives, for walking along the track without unboxing
+    private double[]                      _parameterArray;
     private double                        _length;
     private Track                         _reverse;
     private Map<String, Double>           _statistics;
@@ -55,6 +57,7 @@ abstract public class Track {
         calculateLengthParameterization();
 
         reduce();
+        updateParameterArray();
     }
 
     protected Track (PositionCalculationParameters parameters,
@@ -69,6 +72,7 @@ abstract public class Track {
         calculateLength();
 
         reduce();
+        updateParameterArray();
     }
 
     protected Track (Track oldTrack, PositionCalculationParameters newParameters) {
@@ -89,6 +93,7 @@ abstract public class Track {
         calculateLength();
 
         reduce();
+        updateParameterArray();
     }
 
     public Track reverse () {
@@ -130,6 +135,13 @@ abstract public class Track {
     protected void updatePoints (List<Position> points, List<Double> parameterization) {
         _points = points;
         _parameterization = parameterization;
+        updateParameterArray();
+    }
+
+    private void updateParameterArray () {
+        _parameterArray = new double[_parameterization.size()];
+        for (int i=0; i<_parameterArray.length; ++i)
+            _parameterArray[i] = _parameterization.get(i);
     }
 
     /*
@@ -219,20 +231,26 @@ abstract public class Track {
         }
     }
 
+    /*
+     * Walks both tracks together along the joined parameterization. Since the
+     * joined parameters only increase, each track is followed with a cursor
+     * whose segment only moves forward, so a comparison is linear in the
+     * number of points of the two tracks.
+     */
     private double getDistanceWithDirection (Track them) {
-        List<Double> ourParameterization = getParameterization();
-        List<Double> theirParameterization = them.getParameterization();
-        List<Double> joinedParameterization = ListUtilities.joinLists(ourParameterization,
-                                                                      theirParameterization,
-                                                                      _parameters.getPrecision());
+        double[] joinedParameterization = ListUtilities.joinArrays(_parameterArray,
+                                                                   them._parameterArray,
+                                                                   _parameters.getPrecision());
 
+        LengthParameterizedCursor ourCursor = new LengthParameterizedCursor();
+        LengthParameterizedCursor theirCursor = them.new LengthParameterizedCursor();
         Position pALast = null;
         Position pBLast = null;
         double dLast = 0;
         double totalDistance = 0.0;
         for (double d : joinedParameterization) {
-            Position pA = getLengthParamterizedPoint(d);
-            Position pB = them.getLengthParamterizedPoint(d);
+            Position pA = ourCursor.getPoint(d);
+            Position pB = theirCursor.getPoint(d);
             if (null != pALast) {
                 double startDistance = getSegmentDistance(pALast, pBLast);
                 double endDistance = getSegmentDistance(pA, pB);
@@ -264,17 +282,17 @@ abstract public class Track {
         double theirRelWeight = theirWeight/(ourWeight+theirWeight);
 
         // Get all parameterization points
-        List<Double> ourParameterization = getParameterization();
-        List<Double> theirParameterization = them.getParameterization();
-        List<Double> joinedParameterization = ListUtilities.joinLists(ourParameterization,
-                                                                      theirParameterization,
-                                                                      _parameters.getPrecision());
+        double[] joinedParameterization = ListUtilities.joinArrays(_parameterArray,
+                                                                   them._parameterArray,
+                                                                   _parameters.getPrecision());
 
         // Average the tracks along each parameterization point
-        List<Position> meanPath = new ArrayList<Position>();
+        LengthParameterizedCursor ourCursor = new LengthParameterizedCursor();
+        LengthParameterizedCursor theirCursor = them.new LengthParameterizedCursor();
+        List<Position> meanPath = new ArrayList<Position>(joinedParameterization.length);
         for (double d: joinedParameterization) {
-            Position pUs = getLengthParamterizedPoint(d);
-            Position pThem = them.getLengthParamterizedPoint(d);
+            Position pUs = ourCursor.getPoint(d);
+            Position pThem = theirCursor.getPoint(d);
             Position weightedMean = interpolate(pUs, pThem, theirRelWeight);
             meanPath.add(weightedMean);
         }
@@ -375,32 +393,44 @@ abstract public class Track {
     }
 
     protected Position getLengthParamterizedPoint (double parameter) {
-        if (parameter < 0.0 || 1.0 < parameter)
-            throw new IllegalArgumentException("Length paramterization parameter must be between 0 and 1");
-
-        // Only one point; return it.
-        int N = _parameterization.size();
-        if (0 == N) return null;
-        if (1 == N) return _points.get(0);
-
-        int n;
-        for (n = 0; n < N - 1; ++n) {
-            if (_parameterization.get(n + 1) > parameter)
-                break;
-        }
-
-        double startD = _parameterization.get(n);
-        Position start = _points.get(n);
-        if (Math.abs(parameter - startD) < _parameters.getPrecision())
-            return start;
-
-        double endD = _parameterization.get(n + 1);
-        Position end = _points.get(n+1);
-        if (Math.abs(parameter-endD) < _parameters.getPrecision())
-            return end;
+        return new LengthParameterizedCursor().getPoint(parameter);
+    }
 
-        double pSeg = (parameter - startD) / (endD - startD);
-        return interpolate(start, end, pSeg);
+    /*
+     * Finds length parameterized points along this track for a non-decreasing
+     * sequence of parameters. The current segment only moves forward, so
+     * walking the whole track costs time linear in its number of points.
+     */
+    private class LengthParameterizedCursor {
+        private int _n = 0;
+
+        Position getPoint (double parameter) {
+            if (parameter < 0.0 || 1.0 < parameter)
+                throw new IllegalArgumentException("Length paramterization parameter must be between 0 and 1");
+
+            // Only one point; return it.
+            int N = _parameterArray.length;
+            if (0 == N) return null;
+            if (1 == N) return _points.get(0);
+
+            // the segment is the first whose end parameter is past the requested one
+            while (_n < N - 1 && _parameterArray[_n + 1] <= parameter)
+                ++_n;
+            int n = _n;
+
+            double startD = _parameterArray[n];
+            Position start = _points.get(n);
+            if (Math.abs(parameter - startD) < _parameters.getPrecision())
+                return start;
+
+            double endD = _parameterArray[n + 1];
+            Position end = _points.get(n+1);
+            if (Math.abs(parameter-endD) < _parameters.getPrecision())
+                return end;
+
+            double pSeg = (parameter - startD) / (endD - startD);
+            return interpolate(start, end, pSeg);
+        }
     }
 
 
@@ -25,13 +25,16 @@
 package com.oculusinfo.ml;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.FeatureSchema;
 
 /***
  * Instance represents one "row" or "group" of data describing one entity in a data set.
@@ -40,6 +43,10 @@ import com.oculusinfo.ml.feature.Feature;
  * 
  * Each instance is assumed to be provided a unique identifier.  If none is provided, then one will be generated.
  * 
+ * An instance can optionally be created with a FeatureSchema.  Features named in the schema are then stored
+ * in a fixed size array indexed by slot and can be retrieved with getFeature(int slot).  Any other features
+ * are stored by name as usual.
+ * 
  * @author slangevin
  *
  */
@@ -48,7 +55,9 @@ public class Instance implements Serializable {
 	
 	protected String 	id;
 	protected String	classLabel;
-	protected Map<String, Feature> features = new LinkedHashMap<String, Feature>();
+	protected Map<String, Feature> features;	// features not in the schema - only allocated when needed if there is a schema
+	protected FeatureSchema schema;
+	protected Feature[] slots;
 	
 	public Instance() { 
 		this(UUID.randomUUID().toString());
@@ -62,7 +71,57 @@ public class Instance implements Serializable {
 	 * @param id
 	 */
 	public Instance(String id) {
+		this(id, null);
+	}
+	
+	/***
+	 * Constructor to specify your own id's and a schema for slot indexed feature storage
+	 * 
+	 * NOTE: id's MUST be unique!  It's is up to the caller to ensure this.
+	 * 
+	 * @param id
+	 * @param schema the feature schema or null to store all features by name
+	 */
+	public Instance(String id, FeatureSchema schema) {
 		this.id = id;
+		setSchema(schema);
+	}
+	
+	/***
+	 * Return the feature schema of this Instance or null if it has none
+	 * @return the feature schema
+	 */
+	@JsonIgnore
+	public FeatureSchema getSchema() {
+		return schema;
+	}
+	
+	/***
+	 * Set the feature schema of this Instance.  Any existing features are moved to the new storage layout.
+	 * @param schema the feature schema or null to store all features by name
+	 */
+	@JsonIgnore
+	public void setSchema(FeatureSchema schema) {
+		Collection<Feature> existing = (features == null && slots == null) ? null : getAllFeatures();
+		
+		this.schema = schema;
+		this.slots = (schema == null) ? null : new Feature[schema.size()];
+		this.features = (schema == null) ? new LinkedHashMap<String, Feature>() : null;
+		
+		if (existing != null) {
+			addFeatures(existing);
+		}
+	}
+	
+	private int slotOf(String featureName) {
+		return (schema == null) ? -1 : schema.getSlot(featureName);
+	}
+	
+	private Map<String, Feature> featureMap() {
+		if (features == null) {
+			features = new LinkedHashMap<String, Feature>();
+		}
+		return features;
 	}
 	
 	/***
@@ -116,10 +175,11 @@ public class Instance implements Serializable {
 	public String toString() {
 		StringBuilder str = new StringBuilder();
 		str.append("\"id:" + id + "\",");
+		Collection<Feature> all = getAllFeatures();
 		int i = 1;
-		for (Feature feature : features.values()) {
+		for (Feature feature : all) {
 			str.append("\"" + feature.toString() + "\"");
-			if (i < features.size()) str.append(",");
+			if (i < all.size()) str.append(",");
 			i++;
 		}
 		return str.toString();
@@ -133,7 +193,13 @@ public class Instance implements Serializable {
 	 * @param feature feature to add to the Instance
 	 */
 	public void addFeature(Feature feature) {
-		features.put(feature.getId(), feature);
+		int slot = slotOf(feature.getId());
+		if (slot >= 0) {
+			slots[slot] = feature;
+		}
+		else {
+			featureMap().put(feature.getId(), feature);
+		}
 	}
 
 	/***
@@ -155,7 +221,7 @@ public class Instance implements Serializable {
 	 * @return true if this Instance contain a Feature with name
 	 */
 	public boolean containsFeature(String featureName) {
-		return features.containsKey(featureName);
+		return getFeature(featureName) != null;
 	}
 	
 	/***
@@ -164,7 +230,18 @@ public class Instance implements Serializable {
 	 * @return the Feature with the specified name or null if the Instance don't have a matching Feature
 	 */
 	public Feature getFeature(String featureName) {
-		return features.get(featureName);
+		int slot = slotOf(featureName);
+		if (slot >= 0) return slots[slot];
+		return (features == null) ? null : features.get(featureName);
+	}
+	
+	/***
+	 * Return the Feature stored in the specified schema slot or null if the slot is empty or the Instance has no schema
+	 * @param slot slot number of the Feature in the Instance schema
+	 * @return the Feature in the slot or null
+	 */
+	public Feature getFeature(int slot) {
+		return (slots == null) ? null : slots[slot];
 	}
 
 	/***
@@ -173,7 +250,7 @@ public class Instance implements Serializable {
 	 */
 	@JsonIgnore
 	public boolean isEmpty() {
-		return features.isEmpty();
+		return numFeatures() == 0;
 	}
 
 	/***
@@ -182,15 +259,30 @@ public class Instance implements Serializable {
 	 */
 	@JsonIgnore
 	public Collection<Feature> getAllFeatures() {
-		return features.values();
+		if (slots == null) return features.values();
+		
+		List<Feature> all = new ArrayList<Feature>(numFeatures());
+		for (Feature f : slots) {
+			if (f != null) all.add(f);
+		}
+		if (features != null) all.addAll(features.values());
+		return all;
 	}
 
 	/***
 	 * Return a map of the Features associated with this Instance keyed by Feature name
+	 * 
+	 * If the Instance has a schema the map is a copy and changes to it are not reflected in the Instance
 	 * @return a Map of Features
 	 */
 	public Map<String, Feature> getFeatures() {
-		return features;
+		if (slots == null) return features;
+		
+		Map<String, Feature> all = new LinkedHashMap<String, Feature>();
+		for (Feature f : getAllFeatures()) {
+			all.put(f.getId(), f);
+		}
+		return all;
 	}
 
 	/***
@@ -198,7 +290,7 @@ public class Instance implements Serializable {
 	 * @param feature Map to add
 	 */
 	public void setFeatures(Map<String, Feature> features) {
-		features.putAll(features);
+		addFeatures(features.values());
 	}
 
 	/***
@@ -206,14 +298,23 @@ public class Instance implements Serializable {
 	 * @param name of the Feature to remove
 	 */
 	public void removeFeature(String featureName) {	
-		features.remove(featureName);
+		int slot = slotOf(featureName);
+		if (slot >= 0) {
+			slots[slot] = null;
+		}
+		else if (features != null) {
+			features.remove(featureName);
+		}
 	}
 
 	/***
 	 * Remove all the Features associated with this Instance
 	 */
 	public void removeAllFeatures() {
-		features.clear();
+		if (slots != null) {
+			for (int i=0; i < slots.length; i++) slots[i] = null;
+		}
+		if (features != null) features.clear();
 	}
 
 	/***
@@ -221,6 +322,12 @@ public class Instance implements Serializable {
 	 * @return the number of Features
 	 */
 	public int numFeatures() {
-		return features.size();
+		int n = (features == null) ? 0 : features.size();
+		if (slots != null) {
+			for (Feature f : slots) {
+				if (f != null) n++;
+			}
+		}
+		return n;
 	}	
 }
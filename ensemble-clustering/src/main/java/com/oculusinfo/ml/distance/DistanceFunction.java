@@ -73,6 +73,34 @@ public abstract class DistanceFunction<T> implements Serializable {
 	 */
 	public abstract double distance(T x, T y);
 	
+	/***
+	 * Bounded distance method that may stop calculating once the distance is known to exceed cutoff.
+	 * 
+	 * If the distance between x and y is less than or equal to cutoff the exact distance is returned, 
+	 * otherwise any value greater than cutoff may be returned.  Sub-classes that can abandon their 
+	 * calculation early should override this method, by default the exact distance is returned.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param cutoff the largest distance the caller is interested in
+	 * @return a double precision dissimilarity score for the pair of objects x, y
+	 */
+	public double distance(T x, T y, double cutoff) {
+		return distance(x, y);
+	}
+	
+	/***
+	 * Return whether this distance function is a metric, i.e. it is symmetric, non-negative and
+	 * satisfies the triangle inequality.  Clusterers may use this to prune distance calculations.
+	 * 
+	 * Sub-classes that are metrics should override this method to return true.
+	 * 
+	 * @return true if this distance function is a metric
+	 */
+	public boolean isMetric() {
+		return false;
+	}
+	
 	private double[][] createCoverMatrix(Collection<T> x, Collection<T> y) {
 		double cover[][] = new double[x.size()][y.size()];
 		
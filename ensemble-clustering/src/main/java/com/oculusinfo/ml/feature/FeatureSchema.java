@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/***
+ * A FeatureSchema assigns each of a fixed set of feature names a slot number.
+ * 
+ * Instances and Clusters created with a schema store the features named in the schema in
+ * a fixed size array indexed by slot instead of a map keyed by feature name.  A schema is 
+ * typically built from the feature types registered with a clusterer.
+ * 
+ * Schemas are immutable.  Two schemas are equal when they assign the same names to the same slots, 
+ * so a schema deserialized on another node is interchangeable with the original.
+ * 
+ * @author slangevin
+ *
+ */
+public class FeatureSchema implements Serializable {
+	private static final long serialVersionUID = -3419587062518360924L;
+	
+	private final String[] names;
+	private final Map<String, Integer> slots;
+	private final int hash;
+	
+	public FeatureSchema(Collection<String> featureNames) {
+		names = featureNames.toArray(new String[featureNames.size()]);
+		slots = new HashMap<String, Integer>(names.length * 2);
+		for (int i=0; i < names.length; i++) {
+			slots.put(names[i], i);
+		}
+		hash = Arrays.hashCode(names);
+	}
+	
+	/***
+	 * Return the slot assigned to the feature name or -1 if the name is not part of this schema
+	 * 
+	 * @param featureName name of the feature
+	 * @return the slot number or -1
+	 */
+	public int getSlot(String featureName) {
+		Integer slot = slots.get(featureName);
+		return (slot == null) ? -1 : slot;
+	}
+	
+	/***
+	 * Return the feature name assigned to slot
+	 * 
+	 * @param slot the slot number
+	 * @return the feature name
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+	
+	/***
+	 * Return the number of slots in this schema
+	 * 
+	 * @return the number of slots
+	 */
+	public int size() {
+		return names.length;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (obj instanceof FeatureSchema == false) return false;
+		FeatureSchema other = (FeatureSchema)obj;
+		return (hash == other.hash && Arrays.equals(names, other.names));
+	}
+}
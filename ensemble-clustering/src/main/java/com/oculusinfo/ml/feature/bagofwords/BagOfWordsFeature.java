@@ -24,7 +24,12 @@
  */
 package com.oculusinfo.ml.feature.bagofwords;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 
@@ -38,6 +43,17 @@ import com.oculusinfo.ml.stats.FeatureFrequencyTable;
  * 
  * Useful for representing Document or other Text fields in a DataSet.
  * 
+ * A bag of words can optionally be compacted with a TermDictionary, which replaces the frequency table 
+ * with a sorted array of term ids and a parallel array of counts.  Compact bags use a fraction of the 
+ * memory and bags compacted with the same dictionary are compared by the bag of words distance functions 
+ * with a merge of their id arrays.  Modifying a compact bag expands it back to a frequency table, while 
+ * reading the frequency table of a compact bag or serializing it builds a table without changing the bag, 
+ * so a compact bag can be read by any number of threads.
+ * 
+ * The L2 norm of the term counts is cached until the bag or its frequency table changes.  Setting the 
+ * frequency field of a FeatureFrequency returned by getValues is not seen as a change and leaves the 
+ * cached norm stale, so counts should be changed with setCount or through the frequency table.
+ * 
  * @author slangevin
  *
  */
@@ -45,6 +61,28 @@ public class BagOfWordsFeature extends Feature {
 	private static final long serialVersionUID = 6927104885425283254L;
 	private FeatureFrequencyTable freqTable = new FeatureFrequencyTable();
 	
+	// the compact representation, used in place of the frequency table when set
+	private transient TermDictionary dictionary = null;
+	private transient int[] termIds = null;
+	private transient int[] termCounts = null;
+	
+	/***
+	 * A cached norm and the state of the bag it was computed for
+	 */
+	private static class Norm {
+		final double value;
+		final FeatureFrequencyTable table;
+		final int modCount;
+		
+		Norm(double value, FeatureFrequencyTable table) {
+			this.value = value;
+			this.table = table;
+			this.modCount = (table != null) ? table.getModCount() : 0;
+		}
+	}
+	
+	private transient Norm norm = null;
+	
 	public BagOfWordsFeature() {
 		super();
 	}
@@ -53,50 +91,201 @@ public class BagOfWordsFeature extends Feature {
 		super(name);
 	}
 	
+	/***
+	 * Replace the frequency table with the sorted ids of the terms in dictionary and their counts
+	 * 
+	 * @param dictionary the dictionary to intern the terms in
+	 */
+	public void compact(TermDictionary dictionary) {
+		if (isCompact()) {
+			if (this.dictionary == dictionary) return;
+			expand();
+		}
+		
+		// sort the terms by id, keeping each count with its id
+		long[] entries = new long[freqTable.getAll().size()];
+		int i = 0;
+		for (FeatureFrequency f : freqTable.getAll()) {
+			entries[i++] = ((long)dictionary.getId(f.feature.getName()) << 32) | (f.frequency & 0xffffffffL);
+		}
+		Arrays.sort(entries);
+		
+		termIds = new int[entries.length];
+		termCounts = new int[entries.length];
+		for (i = 0; i < entries.length; i++) {
+			termIds[i] = (int)(entries[i] >>> 32);
+			termCounts[i] = (int)entries[i];
+		}
+		this.dictionary = dictionary;
+		freqTable = null;
+	}
+	
+	/***
+	 * Return a frequency table of the terms of a compact bag of words
+	 */
+	private FeatureFrequencyTable toFreqTable() {
+		FeatureFrequencyTable table = new FeatureFrequencyTable();
+		for (int i = 0; i < termIds.length; i++) {
+			table.add(newFrequency(dictionary.getTerm(termIds[i]), termCounts[i]));
+		}
+		return table;
+	}
+	
+	/***
+	 * Replace the compact representation with a frequency table
+	 */
+	private void expand() {
+		if (!isCompact()) return;
+		
+		freqTable = toFreqTable();
+		dictionary = null;
+		termIds = null;
+		termCounts = null;
+	}
+	
+	private static FeatureFrequency newFrequency(String term, int count) {
+		FeatureFrequency freq = new FeatureFrequency(new StringFeature(term));
+		freq.frequency = count;
+		return freq;
+	}
+	
+	/***
+	 * Return the L2 norm of the term counts.  The norm is cached, see the class comment for when it is recomputed.
+	 * 
+	 * @return the square root of the sum of the squared counts
+	 */
+	@JsonIgnore
+	public double getNorm() {
+		Norm n = norm;
+		if (n != null && n.table == freqTable && (freqTable == null || n.modCount == freqTable.getModCount())) {
+			return n.value;
+		}
+		
+		double length = 0;
+		if (isCompact()) {
+			for (int i = 0; i < termCounts.length; i++) {
+				length += termCounts[i] * termCounts[i];
+			}
+		}
+		else {
+			for (FeatureFrequency f : freqTable.getAll()) {
+				length += f.frequency * f.frequency;
+			}
+		}
+		n = new Norm(Math.sqrt(length), freqTable);
+		norm = n;
+		return n.value;
+	}
+	
+	@JsonIgnore
+	public boolean isCompact() {
+		return termIds != null;
+	}
+	
+	/***
+	 * Return the dictionary of a compact bag of words
+	 * 
+	 * @return the dictionary or null if the bag is not compact
+	 */
+	@JsonIgnore
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+	
+	/***
+	 * Return the sorted term ids of a compact bag of words.  The array must not be modified.
+	 * 
+	 * @return the term ids or null if the bag is not compact
+	 */
+	@JsonIgnore
+	public int[] getTermIds() {
+		return termIds;
+	}
+	
+	/***
+	 * Return the counts of the terms of a compact bag of words in the order of getTermIds.  The array must not be modified.
+	 * 
+	 * @return the term counts or null if the bag is not compact
+	 */
+	@JsonIgnore
+	public int[] getTermCounts() {
+		return termCounts;
+	}
+	
 	public void setCount(FeatureFrequency freq) {
+		expand();
 		freqTable.remove(freq);
 		freqTable.add(freq);
 	}
 	
 	public void setCount(String term, int count) {
-		FeatureFrequency freq = new FeatureFrequency(new StringFeature(term));
-		freq.frequency = count;
-		setCount(freq);
+		setCount(newFrequency(term, count));
 	}
 	
 	public void incrementValue(String term) {
+		expand();
 		freqTable.add(new StringFeature(term));
 	}
 	
 	public void decrementValue(String value) {
+		expand();
 		freqTable.decrement(new StringFeature(value));
 	}
 	
 	public FeatureFrequency getCount(String term) {
+		if (isCompact()) {
+			int id = dictionary.lookup(term);
+			int i = (id < 0) ? -1 : Arrays.binarySearch(termIds, id);
+			return (i < 0) ? null : newFrequency(term, termCounts[i]);
+		}
 		return freqTable.get(new StringFeature(term));
 	}
 	
 	@JsonIgnore
 	public Collection<FeatureFrequency> getValues() {
+		if (isCompact()) {
+			List<FeatureFrequency> values = new ArrayList<FeatureFrequency>(termIds.length);
+			for (int i = 0; i < termIds.length; i++) {
+				values.add(newFrequency(dictionary.getTerm(termIds[i]), termCounts[i]));
+			}
+			return values;
+		}
 		return freqTable.getAll();
 	}
 	
+	/***
+	 * Return the frequency table of the bag of words.  For a compact bag this is a new table built from 
+	 * its terms, so changes to the table do not change the bag.
+	 * 
+	 * @return the frequency table
+	 */
 	public FeatureFrequencyTable getFreqTable() {
-		return this.freqTable;
+		return isCompact() ? toFreqTable() : this.freqTable;
 	}
 	
 	public void setFreqTable(FeatureFrequencyTable table) {
+		dictionary = null;
+		termIds = null;
+		termCounts = null;
 		freqTable = table;
 	}
 	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// write a compact bag in the expanded form without changing it
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("freqTable", getFreqTable());
+		out.writeFields();
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder str = new StringBuilder();
 		str.append(this.getName() + ":[");
+		Collection<FeatureFrequency> values = getValues();
 		int i=1;
-		for (FeatureFrequency f : freqTable.getAll()) {
+		for (FeatureFrequency f : values) {
 			str.append(f.feature.getName() + "=" + f.frequency);
-			if (i < freqTable.getAll().size()) str.append(";");
+			if (i < values.size()) str.append(";");
 			i++;
 		}
 		str.append("]");	
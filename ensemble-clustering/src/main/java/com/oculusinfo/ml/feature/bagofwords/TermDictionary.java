@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.bagofwords;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A TermDictionary interns the terms of BagOfWordsFeatures as small integer ids.
+ * 
+ * Bags of words compacted with the same dictionary store their terms as sorted arrays of ids, 
+ * so they can be compared by a merge of the two arrays without any lookups or allocation.  
+ * A dictionary can be shared by any number of threads.  Adding a term is synchronized but looking 
+ * up a term or its id never blocks.
+ * 
+ * @author slangevin
+ *
+ */
+public class TermDictionary {
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final Object lock = new Object();
+	
+	// the terms by id, a new array is only published once its terms are set so readers need no lock
+	private volatile String[] terms = new String[16];
+	private int count = 0;
+	
+	/***
+	 * Return the id of a term, adding the term to the dictionary if it is new
+	 * 
+	 * @param term the term
+	 * @return the id of the term
+	 */
+	public int getId(String term) {
+		Integer id = ids.get(term);
+		if (id != null) return id;
+		
+		synchronized (lock) {
+			id = ids.get(term);
+			if (id == null) {
+				id = count++;
+				String[] current = terms;
+				if (id == current.length) current = Arrays.copyOf(current, current.length * 2);
+				current[id] = term;
+				terms = current;  // volatile write publishes the term before its id
+				ids.put(term, id);
+			}
+			return id;
+		}
+	}
+	
+	/***
+	 * Return the id of a term without adding it to the dictionary
+	 * 
+	 * @param term the term
+	 * @return the id of the term or -1 if the term is not in the dictionary
+	 */
+	public int lookup(String term) {
+		Integer id = ids.get(term);
+		return (id != null) ? id : -1;
+	}
+	
+	/***
+	 * Return the term with an id
+	 * 
+	 * @param id the id of the term
+	 * @return the term
+	 */
+	public String getTerm(int id) {
+		return terms[id];
+	}
+	
+	public int size() {
+		return ids.size();
+	}
+}
@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.Collections;
 import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.TermDictionary;
 import com.oculusinfo.ml.stats.FeatureFrequency;
 import com.oculusinfo.ml.stats.FeatureFrequencyTable;
 
@@ -43,8 +44,12 @@ public class BagOfWordsCentroid implements Centroid<BagOfWordsFeature> {
 	private static final int MAX_CENTROID_FEATURES = 10;
 	protected final FeatureFrequencyTable freqTable = new FeatureFrequencyTable();
 	
+	// the dictionary of the compact features added, used to compact the centroid
+	private transient TermDictionary dictionary = null;
+	
 	@Override
 	public void add(BagOfWordsFeature feature) {
+		if (feature.isCompact()) dictionary = feature.getDictionary();
 		for (FeatureFrequency nom : feature.getValues()) {
 			freqTable.add(nom);
 		}
@@ -72,6 +77,10 @@ public class BagOfWordsCentroid implements Centroid<BagOfWordsFeature> {
 		for (FeatureFrequency freq : freqs) {
 			medoid.setCount(freq);
 		}
+		if (dictionary != null) medoid.compact(dictionary);
+		
+		// cache the norm up front
+		medoid.getNorm();
 		return medoid;
 	}
 
@@ -47,20 +47,49 @@ public class CosineDistance extends DistanceFunction<BagOfWordsFeature> {
 	
 	@Override
 	public double distance(BagOfWordsFeature x, BagOfWordsFeature y) {
-		double dotprod = 0, xlength = 0, ylength = 0;
+		if (x.isCompact() && y.isCompact() && x.getDictionary() == y.getDictionary()) {
+			return compactDistance(x, y);
+		}
+		
+		double dotprod = 0;
+		double xnorm = x.getNorm(), ynorm = y.getNorm();
+		
+		// if both are empty then distance is max
+		if (xnorm == 0 || ynorm == 0) return 1.0;
 		
 		for (FeatureFrequency xf : x.getValues()) {
-			xlength += xf.frequency * xf.frequency;
 			FeatureFrequency yf = y.getCount(xf.feature.getName());
 			if (yf != null) dotprod += xf.frequency * yf.frequency;
 		}
-		for (FeatureFrequency yf : y.getValues()) {
-			ylength += yf.frequency * yf.frequency;
-		}
+		
+		return 1.0 - (dotprod / ( xnorm * ynorm ));
+	}
+	
+	/***
+	 * Compute the distance between two bags of words compacted with the same dictionary by merging their sorted term ids
+	 */
+	private double compactDistance(BagOfWordsFeature x, BagOfWordsFeature y) {
+		int[] xIds = x.getTermIds(), xCounts = x.getTermCounts();
+		int[] yIds = y.getTermIds(), yCounts = y.getTermCounts();
+		double dotprod = 0;
+		double xnorm = x.getNorm(), ynorm = y.getNorm();
+		
 		// if both are empty then distance is max
-		if (xlength == 0 || ylength == 0) return 1.0;
+		if (xnorm == 0 || ynorm == 0) return 1.0;
 		
-		return 1.0 - (dotprod / ( Math.sqrt(xlength) * Math.sqrt(ylength) ));
+		int i = 0, j = 0;
+		while (i < xIds.length && j < yIds.length) {
+			if (xIds[i] == yIds[j]) {
+				dotprod += xCounts[i++] * yCounts[j++];
+			}
+			else if (xIds[i] < yIds[j]) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return 1.0 - (dotprod / ( xnorm * ynorm ));
 	}
 
 }
@@ -41,6 +41,9 @@ import com.oculusinfo.ml.stats.FeatureFrequency;
  */
 public class EditDistance extends DistanceFunction<BagOfWordsFeature> {
 	private static final long serialVersionUID = -1270784860823146795L;
+	
+	// optional cache of the distances between token pairs
+	private EditDistanceCache cache = null;
 
 	public EditDistance() {
 		super(1);
@@ -50,8 +53,32 @@ public class EditDistance extends DistanceFunction<BagOfWordsFeature> {
 		super(weight);
 	}
 	
+	/***
+	 * Create an edit distance function that looks up the distances between pairs of words in a cache
+	 * 
+	 * @param weight
+	 * @param cache the token pair distance cache
+	 */
+	public EditDistance(double weight, EditDistanceCache cache) {
+		super(weight);
+		this.cache = cache;
+	}
+	
+	public EditDistanceCache getCache() {
+		return cache;
+	}
+	
+	public void setCache(EditDistanceCache cache) {
+		this.cache = cache;
+	}
+	
 	@Override
 	public double distance(BagOfWordsFeature x, BagOfWordsFeature y) {
+		return distance(x, y, Double.MAX_VALUE);
+	}
+	
+	@Override
+	public double distance(BagOfWordsFeature x, BagOfWordsFeature y, double cutoff) {
 		double dist = 0;
 		
 		Collection<FeatureFrequency> xWords = x.getValues();
@@ -67,84 +94,29 @@ public class EditDistance extends DistanceFunction<BagOfWordsFeature> {
 			b = xWords;
 		}
 		
+		double limit = cutoff * norm;
+		
 		for (FeatureFrequency xf : a) {
 			double best = 1.0;
 			for (FeatureFrequency yf : b) {
-				double d = getNormLevenshteinDistance(xf.feature.getName(), yf.feature.getName());
+				// only a word closer than the best so far matters
+				double d = (cache != null) ? cache.getDistance(xf.feature.getName(), yf.feature.getName()) : 
+											 com.oculusinfo.ml.feature.string.distance.EditDistance.getNormLevenshteinDistance(xf.feature.getName(), yf.feature.getName(), best);
 				if (d < best) best = d;
 			}
 			dist += best;
+			if (dist > limit) break;  // the distance already exceeds the cutoff
 		}
 	
 		return dist / norm;
 	}
 	
-	// Levenshtein Distance Algorithm based on implementation from Apache Jakarta Commons Project, 
-	// implementation from here:  http://www.merriampark.com/ldjava.htm
+	/***
+	 * Return the normalized Levenshtein distance between two strings
+	 * 
+	 * @see com.oculusinfo.ml.feature.string.distance.EditDistance#getNormLevenshteinDistance(String, String)
+	 */
 	public static double getNormLevenshteinDistance(String s, String t) {
-		if (s == null || t == null) throw new IllegalArgumentException("Strings must not be null");
-				
-		/*
-	     	The difference between this impl. and the previous is that, rather 
-	     	than creating and retaining a matrix of size s.length()+1 by t.length()+1, 
-	     	we maintain two single-dimensional arrays of length s.length()+1.  The first, d,
-	     	is the 'current working' distance array that maintains the newest distance cost
-	     	counts as we iterate through the characters of String s.  Each time we increment
-	     	the index of String t we are comparing, d is copied to p, the second int[].  Doing so
-	     	allows us to retain the previous cost counts as required by the algorithm (taking 
-	     	the minimum of the cost count to the left, up one, and diagonally up and to the left
-	     	of the current cost count being calculated).  (Note that the arrays aren't really 
-	     	copied anymore, just switched...this is clearly much better than cloning an array 
-	     	or doing a System.arraycopy() each time  through the outer loop.)
-
-	     	Effectively, the difference between the two implementations is this one does not 
-	     	cause an out of memory condition when calculating the LD over two very large strings.  		
-		 */		
-			
-		int n = s.length(); // length of s
-		int m = t.length(); // length of t
-			
-		if (n == 0) {
-			return m;
-		} else if (m == 0) {
-			return n;
-		}
-
-		int p[] = new int[n+1]; //'previous' cost array, horizontally
-		int d[] = new int[n+1]; // cost array, horizontally
-		int _d[]; //placeholder to assist in swapping p and d
-
-		// indexes into strings s and t
-		int i; // iterates through s
-		int j; // iterates through t
-
-		char t_j; // jth character of t
-
-		int cost; // cost
-
-		for (i = 0; i<=n; i++) {
-			p[i] = i;
-		}
-			
-		for (j = 1; j<=m; j++) {
-			t_j = t.charAt(j-1);
-			d[0] = j;
-			
-			for (i=1; i<=n; i++) {
-				cost = s.charAt(i-1)==t_j ? 0 : 1;
-				// minimum of cell to the left+1, to the top+1, diagonally left and up +cost				
-				d[i] = Math.min(Math.min(d[i-1]+1, p[i]+1),  p[i-1]+cost);  
-			}
-
-			// copy current distance counts to 'previous row' distance counts
-			_d = p;
-			p = d;
-			d = _d;
-		} 
-			
-		// our last action in the above loop was to switch d and p, so p now 
-		// actually has the most recent cost counts
-		// distance is normalized to [0, 1]
-		return ( (double) p[n] / Math.max(n, m) );
-	}	
+		return com.oculusinfo.ml.feature.string.distance.EditDistance.getNormLevenshteinDistance(s, t);
+	}
 }
@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.bagofwords.distance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/***
+ * A bounded, thread safe cache of the normalized edit distances between pairs of tokens.
+ * 
+ * Lookups do not lock or allocate.  Once the cache holds more than the maximum number of entries 
+ * or of estimated memory, one thread sweeps the entries and evicts those that have not been used 
+ * since the previous sweep (second chance eviction, an approximation of least recently used) until 
+ * the cache is back under 90% of its limits.  The pair (s, t) shares an entry with (t, s).  
+ * 
+ * The cache is serialized empty with its limits so it can be shipped with its distance function.
+ * 
+ * @author slangevin
+ *
+ */
+public class EditDistanceCache implements Serializable {
+	private static final long serialVersionUID = -2478351526306954115L;
+	
+	private static final int DEFAULT_MAX_ENTRIES = 1000000;
+	private static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+	
+	// estimated size of an entry excluding its strings: key, entry and hash map node
+	private static final int ENTRY_BYTES = 32 + 32 + 48;
+	
+	private static class Key {
+		String s, t;
+		int hash;
+		
+		Key() { }
+		
+		Key(String s, String t) {
+			set(s, t);
+		}
+		
+		Key set(String s, String t) {
+			// order the pair so the distance is shared in both directions
+			int hs = s.hashCode(), ht = t.hashCode();
+			if (hs > ht || (hs == ht && s.compareTo(t) > 0)) {
+				String tmp = s;
+				s = t;
+				t = tmp;
+			}
+			this.s = s;
+			this.t = t;
+			this.hash = 31 * s.hashCode() + t.hashCode();
+			return this;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (obj instanceof Key == false) return false;
+			Key other = (Key)obj;
+			return hash == other.hash && s.equals(other.s) && t.equals(other.t);
+		}
+	}
+	
+	private static class Entry {
+		final double distance;
+		final long bytes;
+		boolean referenced = false;
+		
+		Entry(double distance, long bytes) {
+			this.distance = distance;
+			this.bytes = bytes;
+		}
+	}
+	
+	private final int maxEntries;
+	private final long maxBytes;
+	
+	private transient ConcurrentHashMap<Key, Entry> entries;
+	private transient ThreadLocal<Key> probes;
+	private transient AtomicInteger size;
+	private transient AtomicLong bytes;
+	private transient AtomicLong hits;
+	private transient AtomicLong misses;
+	private transient ReentrantLock sweeping;
+	
+	public EditDistanceCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+	}
+	
+	/***
+	 * Create an edit distance cache
+	 * 
+	 * @param maxEntries the largest number of token pairs to cache
+	 * @param maxBytes the largest estimated memory in bytes to use for cached pairs
+	 */
+	public EditDistanceCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		init();
+	}
+	
+	private void init() {
+		entries = new ConcurrentHashMap<Key, Entry>();
+		probes = new ThreadLocal<Key>() {
+			@Override
+			protected Key initialValue() {
+				return new Key();
+			}
+		};
+		size = new AtomicInteger();
+		bytes = new AtomicLong();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		sweeping = new ReentrantLock();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init();
+	}
+	
+	/***
+	 * Return the normalized edit distance between two tokens, computing and caching it if it is not cached
+	 * 
+	 * @param s
+	 * @param t
+	 * @return the normalized edit distance
+	 */
+	public double getDistance(String s, String t) {
+		Entry cached = entries.get(probes.get().set(s, t));
+		if (cached != null) {
+			cached.referenced = true;
+			hits.incrementAndGet();
+			return cached.distance;
+		}
+		misses.incrementAndGet();
+		
+		double d = EditDistance.getNormLevenshteinDistance(s, t);
+		
+		Entry entry = new Entry(d, ENTRY_BYTES + 2 * (40 + 2 * (s.length() + t.length())));
+		if (entries.putIfAbsent(new Key(s, t), entry) == null) {
+			size.incrementAndGet();
+			bytes.addAndGet(entry.bytes);
+			
+			if ((size.get() > maxEntries || bytes.get() > maxBytes) && sweeping.tryLock()) {
+				try {
+					evict();
+				}
+				finally {
+					sweeping.unlock();
+				}
+			}
+		}
+		return d;
+	}
+	
+	/***
+	 * Evict entries not used since the last sweep until the cache is under 90% of its limits
+	 */
+	private void evict() {
+		int targetEntries = (int)(maxEntries * 0.9);
+		long targetBytes = (long)(maxBytes * 0.9);
+		boolean progress = true;
+		
+		// stop if a sweep neither evicts nor ages an entry, otherwise drifted counters could spin forever
+		while (progress && (size.get() > targetEntries || bytes.get() > targetBytes)) {
+			progress = false;
+			Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+			while (it.hasNext() && (size.get() > targetEntries || bytes.get() > targetBytes)) {
+				Entry entry = it.next().getValue();
+				if (entry.referenced) {
+					entry.referenced = false;  // second chance
+				}
+				else {
+					it.remove();
+					size.decrementAndGet();
+					bytes.addAndGet(-entry.bytes);
+				}
+				progress = true;
+			}
+		}
+	}
+	
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	/***
+	 * Return the number of token pairs cached
+	 */
+	public int size() {
+		return size.get();
+	}
+	
+	/***
+	 * Return the estimated memory in bytes used by the cached pairs
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	/***
+	 * Return the fraction of lookups that were found in the cache
+	 */
+	public double getHitRate() {
+		long h = hits.get(), m = misses.get();
+		return (h + m == 0) ? 0 : (double)h / (h + m);
+	}
+	
+	/***
+	 * Remove all cached pairs and reset the statistics
+	 */
+	public void clear() {
+		sweeping.lock();
+		try {
+			// remove the entries one at a time so the counters stay consistent with concurrent inserts
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				it.remove();
+				size.decrementAndGet();
+				bytes.addAndGet(-entry.bytes);
+			}
+			hits.set(0);
+			misses.set(0);
+		}
+		finally {
+			sweeping.unlock();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "EditDistanceCache [size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", hitRate=" + getHitRate() + "]";
+	}
+}
@@ -48,6 +48,10 @@ public class ExactTokenMatchDistance extends DistanceFunction<BagOfWordsFeature>
 	
 	@Override
 	public double distance(BagOfWordsFeature x, BagOfWordsFeature y) {
+		if (x.isCompact() && y.isCompact() && x.getDictionary() == y.getDictionary()) {
+			return compactDistance(x, y);
+		}
+		
 		double dist = 0;
 		int m = x.getValues().size();
 		int n = y.getValues().size();
@@ -68,4 +72,32 @@ public class ExactTokenMatchDistance extends DistanceFunction<BagOfWordsFeature>
 
 		return dist / norm;
 	}
+	
+	/***
+	 * Compute the distance between two bags of words compacted with the same dictionary by merging their sorted term ids
+	 */
+	private double compactDistance(BagOfWordsFeature x, BagOfWordsFeature y) {
+		int[] xIds = x.getTermIds();
+		int[] yIds = y.getTermIds();
+		double norm = Math.max(xIds.length, yIds.length);
+		
+		int shared = 0;
+		int i = 0, j = 0;
+		while (i < xIds.length && j < yIds.length) {
+			if (xIds[i] == yIds[j]) {
+				shared++;
+				i++;
+				j++;
+			}
+			else if (xIds[i] < yIds[j]) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		
+		// the words of the largest list that are not in the other
+		return (norm - shared) / norm;
+	}
 }
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.bagofwords.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.stats.FeatureFrequency;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * An inverted index from terms to the clusters whose BagOfWordsFeature centroid contains them for 
+ * use with the bag of words CosineDistance or ExactTokenMatchDistance functions.
+ * 
+ * Both distance functions are 1 for two bags of words that share no terms, so for any search 
+ * radius less than 1 only the clusters that share at least one term with the instance are returned.
+ * 
+ * ExactTokenMatchDistance is the fraction of the terms of the larger bag that are missing from the 
+ * smaller one, so when the index is created for that distance function a cluster is only returned 
+ * when it shares at least (1 - radius) times the number of terms of the larger bag with the instance.
+ * 
+ * The terms of each cluster are re-indexed whenever its centroid changes.  Candidates are returned in the 
+ * order the clusters were indexed so ties are broken as they would be without the index.
+ * 
+ * @author slangevin
+ *
+ */
+public class InvertedTermClusterIndex extends AbstractClusterIndex {
+	private final static double EPSILON = 1e-9;
+	
+	private final boolean exactTokenMatch;
+	
+	private final Map<String, Set<Cluster>> postings = new HashMap<String, Set<Cluster>>();
+	private final Map<Cluster, Set<String>> indexedTerms = new IdentityHashMap<Cluster, Set<String>>();
+	
+	public InvertedTermClusterIndex(String featureName) {
+		this(featureName, false);
+	}
+	
+	/***
+	 * Create an inverted term cluster index
+	 * 
+	 * @param featureName the name of the BagOfWordsFeature
+	 * @param exactTokenMatch true if the feature uses ExactTokenMatchDistance so that the number of shared terms required can be derived from the search radius
+	 */
+	public InvertedTermClusterIndex(String featureName, boolean exactTokenMatch) {
+		super(featureName);
+		this.exactTokenMatch = exactTokenMatch;
+	}
+	
+	public boolean isExactTokenMatch() {
+		return exactTokenMatch;
+	}
+	
+	private Set<String> getTerms(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof BagOfWordsFeature == false) return null;
+		
+		Set<String> terms = new HashSet<String>();
+		for (FeatureFrequency freq : ((BagOfWordsFeature)feature).getValues()) {
+			terms.add(freq.feature.getName());
+		}
+		return terms;
+	}
+	
+	private void add(Cluster cluster, Set<String> terms) {
+		indexedTerms.put(cluster, terms);
+		addOrdinal(cluster);
+		if (terms == null) {
+			unindexed.add(cluster);
+			return;
+		}
+		
+		for (String term : terms) {
+			Set<Cluster> posting = postings.get(term);
+			if (posting == null) {
+				posting = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+				postings.put(term, posting);
+			}
+			posting.add(cluster);
+		}
+	}
+	
+	private void remove(Cluster cluster, Set<String> terms) {
+		if (terms == null) {
+			unindexed.remove(cluster);
+			return;
+		}
+		
+		for (String term : terms) {
+			Set<Cluster> posting = postings.get(term);
+			posting.remove(cluster);
+			if (posting.isEmpty()) postings.remove(term);
+		}
+	}
+
+	@Override
+	protected void clear() {
+		super.clear();
+		postings.clear();
+		indexedTerms.clear();
+	}
+
+	@Override
+	public void build(List<Cluster> clusters) {
+		clear();
+		
+		for (Cluster c : clusters) {
+			add(c, getTerms(c));
+		}
+	}
+
+	@Override
+	public void update(Cluster cluster) {
+		Set<String> terms = getTerms(cluster);
+		
+		if (indexedTerms.containsKey(cluster)) {
+			Set<String> old = indexedTerms.get(cluster);
+			
+			// nothing to do if the centroid terms have not changed
+			if (old == null ? terms == null : old.equals(terms)) return;
+			
+			remove(cluster, old);
+		}
+		add(cluster, terms);
+	}
+	
+	/***
+	 * Return the number of query terms each indexed cluster shares with the query
+	 */
+	private Map<Cluster, int[]> countShared(Set<String> terms) {
+		Map<Cluster, int[]> shared = new IdentityHashMap<Cluster, int[]>();
+		for (String term : terms) {
+			Set<Cluster> posting = postings.get(term);
+			if (posting == null) continue;
+			
+			for (Cluster c : posting) {
+				int[] count = shared.get(c);
+				if (count == null) {
+					shared.put(c, new int[] { 1 });
+				}
+				else {
+					count[0]++;
+				}
+			}
+		}
+		return shared;
+	}
+
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		Set<String> terms = getTerms(inst);
+		
+		// any two bags of words are within a radius of 1
+		if (terms == null || radius >= 1) return null;
+		
+		Map<Cluster, int[]> shared = countShared(terms);
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed.size() + shared.size());
+		result.addAll(unindexed);
+		
+		for (Map.Entry<Cluster, int[]> entry : shared.entrySet()) {
+			if (exactTokenMatch) {
+				int size = Math.max(terms.size(), indexedTerms.get(entry.getKey()).size());
+				if (entry.getValue()[0] < (1 - radius) * size - EPSILON) continue;
+			}
+			result.add(entry.getKey());
+		}
+		sortInIndexOrder(result);
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		Set<String> terms = getTerms(inst);
+		if (terms == null) return null;
+		
+		// when no terms are shared every cluster is at a distance of 1
+		Map<Cluster, int[]> shared = countShared(terms);
+		if (shared.isEmpty()) return null;
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed.size() + shared.size());
+		result.addAll(unindexed);
+		result.addAll(shared.keySet());
+		sortInIndexOrder(result);
+		return result;
+	}
+}
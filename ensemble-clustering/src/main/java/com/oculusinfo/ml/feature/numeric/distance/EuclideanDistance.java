@@ -40,6 +40,11 @@ public class EuclideanDistance extends DistanceFunction<NumericVectorFeature>{
 		super(weight);
 	}
 	
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+	
 	@Override
 	public double distance(NumericVectorFeature x, NumericVectorFeature y) {
 		double[] vector1 = x.getValue();
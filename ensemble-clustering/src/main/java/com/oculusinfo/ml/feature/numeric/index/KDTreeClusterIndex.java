@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.numeric.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractTreeClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * A KD-tree index over the NumericVectorFeature centroids of clusters for use with the numeric 
+ * EuclideanDistance function.
+ * 
+ * The tree is built over a copy of the centroid vectors, splitting each node at the median of the 
+ * dimension with the largest spread, so queries only descend into the subtrees that can hold a 
+ * centroid within the search radius or closer than the best found so far.
+ * 
+ * Clusters updated after the tree was built are kept in a small list that is searched exhaustively 
+ * with their current centroids, and their stale tree entries are skipped.  The tree is rebuilt once
+ * this list grows past a fraction of the indexed clusters.
+ * 
+ * @author slangevin
+ *
+ */
+public class KDTreeClusterIndex extends AbstractTreeClusterIndex {
+	private final static int LEAF_SIZE = 8;
+	
+	private double[][] points = new double[0][];
+	private int[] splitDims = new int[0];
+	
+	public KDTreeClusterIndex(String featureName) {
+		super(featureName);
+	}
+	
+	private double[] getVector(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof NumericVectorFeature == false) return null;
+		return ((NumericVectorFeature)feature).getValue();
+	}
+
+	@Override
+	protected boolean isIndexable(Cluster cluster) {
+		return (getVector(cluster) != null);
+	}
+
+	@Override
+	protected Cluster[] buildTree(List<Cluster> indexed) {
+		List<double[]> vectors = new ArrayList<double[]>(indexed.size());
+		for (Cluster c : indexed) {
+			vectors.add(getVector(c).clone());  // centroids may be updated in place
+		}
+		
+		int n = indexed.size();
+		Cluster[] tree = new Cluster[n];
+		points = new double[n][];
+		splitDims = new int[n];
+		
+		Integer[] order = new Integer[n];
+		for (int i=0; i < n; i++) order[i] = i;
+		build(order, 0, n, vectors);
+		
+		for (int i=0; i < n; i++) {
+			tree[i] = indexed.get(order[i]);
+			points[i] = vectors.get(order[i]);
+		}
+		return tree;
+	}
+	
+	/***
+	 * Arrange order[lo, hi) into an implicit KD-tree where the node of each range is at its midpoint
+	 */
+	private void build(Integer[] order, int lo, int hi, final List<double[]> vectors) {
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i=lo; i < hi; i++) splitDims[i] = -1;
+			return;
+		}
+		
+		// split on the dimension with the largest spread
+		int dims = vectors.get(order[lo]).length;
+		int best = 0;
+		double bestSpread = -1;
+		for (int d=0; d < dims; d++) {
+			double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+			for (int i=lo; i < hi; i++) {
+				double x = vectors.get(order[i])[d];
+				if (x < min) min = x;
+				if (x > max) max = x;
+			}
+			if (max - min > bestSpread) {
+				bestSpread = max - min;
+				best = d;
+			}
+		}
+		
+		final int dim = best;
+		Arrays.sort(order, lo, hi, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(vectors.get(a)[dim], vectors.get(b)[dim]);
+			}
+		});
+		
+		int mid = (lo + hi) >>> 1;
+		splitDims[mid] = dim;
+		build(order, lo, mid, vectors);
+		build(order, mid + 1, hi, vectors);
+	}
+
+	private static double squaredDistance(double[] a, double[] b) {
+		double d = 0;
+		for (int i=0; i < a.length; i++) {
+			double diff = a[i] - b[i];
+			d += diff * diff;
+		}
+		return d;
+	}
+	
+	private void range(double[] q, double r2, int lo, int hi, List<Cluster> result) {
+		if (lo >= hi) return;
+		
+		int mid = (lo + hi) >>> 1;
+		int dim = splitDims[mid];
+		
+		if (dim < 0) {	// leaf
+			for (int i=lo; i < hi; i++) {
+				if (!stale[i] && squaredDistance(q, points[i]) <= r2) result.add(clusters[i]);
+			}
+			return;
+		}
+		
+		if (!stale[mid] && squaredDistance(q, points[mid]) <= r2) result.add(clusters[mid]);
+		
+		double diff = q[dim] - points[mid][dim];
+		if (diff <= 0 || diff * diff <= r2) range(q, r2, lo, mid, result);
+		if (diff >= 0 || diff * diff <= r2) range(q, r2, mid + 1, hi, result);
+	}
+	
+	private int nearest(double[] q, int lo, int hi, int best, double[] bestDist) {
+		if (lo >= hi) return best;
+		
+		int mid = (lo + hi) >>> 1;
+		int dim = splitDims[mid];
+		
+		if (dim < 0) {	// leaf
+			for (int i=lo; i < hi; i++) {
+				if (stale[i]) continue;
+				double d = squaredDistance(q, points[i]);
+				if (d < bestDist[0]) {
+					bestDist[0] = d;
+					best = i;
+				}
+			}
+			return best;
+		}
+		
+		if (!stale[mid]) {
+			double d = squaredDistance(q, points[mid]);
+			if (d < bestDist[0]) {
+				bestDist[0] = d;
+				best = mid;
+			}
+		}
+		
+		// search the side of the split containing q first
+		double diff = q[dim] - points[mid][dim];
+		if (diff <= 0) {
+			best = nearest(q, lo, mid, best, bestDist);
+			if (diff * diff < bestDist[0]) best = nearest(q, mid + 1, hi, best, bestDist);
+		}
+		else {
+			best = nearest(q, mid + 1, hi, best, bestDist);
+			if (diff * diff < bestDist[0]) best = nearest(q, lo, mid, best, bestDist);
+		}
+		return best;
+	}
+
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		double[] q = getVector(inst);
+		if (q == null || radius == Double.MAX_VALUE) return null;
+		
+		// EuclideanDistance is normalized by the number of dimensions
+		double r2 = radius * radius * q.length;
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed);
+		range(q, r2, 0, clusters.length, result);
+		
+		for (Cluster c : updated) {
+			double[] v = getVector(c);
+			if (v == null || squaredDistance(q, v) <= r2) result.add(c);
+		}
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		double[] q = getVector(inst);
+		if (q == null) return null;
+		
+		double[] bestDist = { Double.MAX_VALUE };
+		int best = nearest(q, 0, clusters.length, -1, bestDist);
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed);
+		Cluster nearest = (best >= 0) ? clusters[best] : null;
+		for (Cluster c : updated) {
+			double[] v = getVector(c);
+			if (v == null) {
+				result.add(c);
+				continue;
+			}
+			double d = squaredDistance(q, v);
+			if (d < bestDist[0]) {
+				bestDist[0] = d;
+				nearest = c;
+			}
+		}
+		
+		if (nearest != null) result.add(nearest);
+		return result;
+	}
+}
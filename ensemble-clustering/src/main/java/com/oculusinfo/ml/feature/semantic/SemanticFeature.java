@@ -25,6 +25,7 @@
 package com.oculusinfo.ml.feature.semantic;
 
 import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.semantic.distance.TaxonomyIndex;
 
 /***
  * A SemanticFeature represents an instance of a semantic class in an Ontology
@@ -34,6 +35,8 @@ import com.oculusinfo.ml.feature.Feature;
  *   * A uri that uniquely identifies the instance
  *   * A label that describes the instance
  *   
+ * The id of the concept in a TaxonomyIndex is looked up once and cached until the concept changes.
+ *   
  * Example:  Concept = foaf:Person,  URI = http://danbri.org/ , Label = Dan Brickley
  * 
  * @author slangevin
@@ -45,6 +48,20 @@ public class SemanticFeature extends Feature {
 	private String uri;
 	private String label;
 	
+	/***
+	 * The id of the concept in a taxonomy index
+	 */
+	private static class ConceptId {
+		final TaxonomyIndex index;
+		final int id;
+		
+		ConceptId(TaxonomyIndex index, int id) {
+			this.index = index;
+			this.id = id;
+		}
+	}
+	private transient ConceptId conceptId = null;
+	
 	public SemanticFeature() {
 		super();
 	}
@@ -56,12 +73,14 @@ public class SemanticFeature extends Feature {
 	public void setValue(String concept, String uri) {
 		this.concept = concept;
 		this.uri = uri;
+		this.conceptId = null;
 	}
 	
 	public void setValue(String concept, String uri, String label) {
 		this.concept = concept;
 		this.uri = uri;
 		this.label = label;
+		this.conceptId = null;
 	}
 
 	public String getConcept() {
@@ -70,6 +89,22 @@ public class SemanticFeature extends Feature {
 	
 	public void setConcept(String concept) {
 		this.concept = concept;
+		this.conceptId = null;
+	}
+	
+	/***
+	 * Return the id of the concept in the taxonomy index, cached for later calls with the same index
+	 * 
+	 * @param index the taxonomy index
+	 * @return the concept id or -1 if the taxonomy does not contain the concept
+	 */
+	public int getConceptId(TaxonomyIndex index) {
+		ConceptId c = conceptId;
+		if (c == null || c.index != index) {
+			c = new ConceptId(index, index.getId(concept));
+			conceptId = c;
+		}
+		return c.id;
 	}
 	
 	public String getUri() {
@@ -35,7 +35,7 @@ import java.util.Set;
  * We assume a tree hierarchy for efficiency of calculating lowest common parent (LCP) operations.
  * LCP can be performed in O(h) time where h is the height of the tree.  
  * 
- * Note: This LCP can be made in constant time if a linear caching step is performed
+ * Note: TaxonomyIndex compiles the tree to answer LCP queries in constant time
  * 
  * If the Taxonomy needs to support multiple inheritance, this class will need to be modified.
  *   
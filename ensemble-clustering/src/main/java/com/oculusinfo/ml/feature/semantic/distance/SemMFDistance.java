@@ -31,6 +31,7 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  * A distance function that computes the distance between two SemanticFeatures
  * 
  * In order to use this distance function you must provide a taxonomy that describes the Semantic Class hierarchy as a tree
+ * The taxonomy is compiled once into a TaxonomyIndex so concept lookups and common ancestor queries take constant time
  * 
  * The distance calculation finds the lowest common ancestor between the two SemanticFeatures and computes
  * the distance using the algorithm described in:
@@ -42,20 +43,42 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  */
 public class SemMFDistance extends DistanceFunction<SemanticFeature> {
 	private static final long serialVersionUID = -7485093350764491674L;
-	private Concept taxonomy;
+	private final TaxonomyIndex taxonomy;
 	
+	/***
+	 * Create the distance function from a snapshot of the taxonomy.  Concepts added to or removed from 
+	 * the taxonomy after construction are not seen by the distance function.
+	 * 
+	 * @param taxonomy the root concept of the taxonomy
+	 */
 	public SemMFDistance(Concept taxonomy) {
 		this(taxonomy, 1);
 	}
 	
+	/***
+	 * Create a weighted distance function from a snapshot of the taxonomy
+	 * 
+	 * @param taxonomy the root concept of the taxonomy
+	 * @param weight the weight of the distance function
+	 */
 	public SemMFDistance(Concept taxonomy, double weight) {
+		this(new TaxonomyIndex(taxonomy), weight);
+	}
+	
+	/***
+	 * Create the distance function from a taxonomy index, which can be shared with other distance functions
+	 * 
+	 * @param taxonomy the taxonomy index
+	 * @param weight the weight of the distance function
+	 */
+	public SemMFDistance(TaxonomyIndex taxonomy, double weight) {
 		super(weight);
 		this.taxonomy = taxonomy;
 	}
 	
-	private double distance(Concept x, Concept y) {
-		int xlvl = x.getDepth();
-		int ylvl = y.getDepth();
+	private double distance(int x, int y) {
+		int xlvl = taxonomy.getDepth(x);
+		int ylvl = taxonomy.getDepth(y);
 		return 0.5 / Math.pow(2, ylvl) -  0.5 / Math.pow(2, xlvl);
 	}
 	
@@ -63,12 +86,12 @@ public class SemMFDistance extends DistanceFunction<SemanticFeature> {
 	public double distance(SemanticFeature x, SemanticFeature y) {
 		double dist = 1;
 
-		Concept cx = taxonomy.findConcept(x.getConcept());
-		Concept cy = taxonomy.findConcept(y.getConcept());
-		Concept lca = cx.findCommonAncestor(cy);
+		int cx = x.getConceptId(taxonomy);
+		int cy = y.getConceptId(taxonomy);
 		
-		// No common ancestor exists - return max distance
-		if (lca != null) {
+		// Concept not in the taxonomy - return max distance
+		if (cx >= 0 && cy >= 0) {
+			int lca = taxonomy.getCommonAncestor(cx, cy);
 			dist = distance(cx, lca) + distance(cy, lca);
 		}
 		
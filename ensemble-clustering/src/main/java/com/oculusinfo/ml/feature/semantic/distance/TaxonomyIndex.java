@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.semantic.distance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/***
+ * An immutable, flattened index of a Concept taxonomy for the semantic distance functions.
+ * 
+ * Every concept is given an int id in depth first order and its depth is precomputed.  Lowest common 
+ * ancestor queries are answered in constant time with a range minimum query over the Euler tour of the 
+ * tree, using a sparse table of O(n log n) ints built once.  Since nothing is written after the index 
+ * is built it can be shared by any number of threads without locking.
+ * 
+ * Concept names are matched ignoring case, like Concept.findConcept.  The index does not follow changes 
+ * made to the taxonomy after it is built.
+ * 
+ * @author slangevin
+ *
+ */
+public class TaxonomyIndex implements Serializable {
+	private static final long serialVersionUID = -4467712845328834511L;
+	
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final Concept[] concepts;
+	private final int[] depths;
+	
+	// position of the first visit of each concept in the Euler tour
+	private final int[] first;
+	
+	// sparse[k][i] is the shallowest concept in the Euler tour from i to i + 2^k - 1
+	private final int[][] sparse;
+	
+	public TaxonomyIndex(Concept root) {
+		List<Concept> nodes = new ArrayList<Concept>();
+		List<Integer> depthList = new ArrayList<Integer>();
+		List<Integer> firstList = new ArrayList<Integer>();
+		List<Integer> tour = new ArrayList<Integer>();
+		
+		// iterative depth first traversal recording the Euler tour
+		List<Iterator<Concept>> stack = new ArrayList<Iterator<Concept>>();
+		List<Integer> stackIds = new ArrayList<Integer>();
+		
+		int rootId = visit(root, root.getDepth(), nodes, depthList, firstList, tour);
+		stack.add(root.getChildren().iterator());
+		stackIds.add(rootId);
+		
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			Iterator<Concept> it = stack.get(top);
+			if (it.hasNext()) {
+				Concept child = it.next();
+				int id = visit(child, depthList.get(stackIds.get(top)) + 1, nodes, depthList, firstList, tour);
+				stack.add(child.getChildren().iterator());
+				stackIds.add(id);
+			}
+			else {
+				stack.remove(top);
+				stackIds.remove(top);
+				if (top > 0) tour.add(stackIds.get(top - 1));
+			}
+		}
+		
+		int n = nodes.size();
+		concepts = nodes.toArray(new Concept[n]);
+		depths = new int[n];
+		first = new int[n];
+		for (int i = 0; i < n; i++) {
+			depths[i] = depthList.get(i);
+			first[i] = firstList.get(i);
+		}
+		
+		int m = tour.size();
+		int levels = 32 - Integer.numberOfLeadingZeros(m);
+		sparse = new int[levels][];
+		sparse[0] = new int[m];
+		for (int i = 0; i < m; i++) {
+			sparse[0][i] = tour.get(i);
+		}
+		for (int k = 1; k < levels; k++) {
+			int half = 1 << (k - 1);
+			int len = m - (1 << k) + 1;
+			int[] prev = sparse[k - 1];
+			int[] level = new int[len];
+			for (int i = 0; i < len; i++) {
+				int a = prev[i], b = prev[i + half];
+				level[i] = (depths[a] <= depths[b]) ? a : b;
+			}
+			sparse[k] = level;
+		}
+	}
+	
+	private int visit(Concept c, int depth, List<Concept> nodes, List<Integer> depthList, List<Integer> firstList, List<Integer> tour) {
+		int id = nodes.size();
+		nodes.add(c);
+		depthList.add(depth);
+		firstList.add(tour.size());
+		tour.add(id);
+		
+		// keep the first concept found for a name, as the depth first Concept.findConcept does
+		String key = c.getName().toLowerCase(Locale.ROOT);
+		if (!ids.containsKey(key)) ids.put(key, id);
+		return id;
+	}
+	
+	/***
+	 * Return the id of the named concept
+	 * 
+	 * @param name the concept name
+	 * @return the concept id or -1 if the taxonomy does not contain the concept
+	 */
+	public int getId(String name) {
+		if (name == null) return -1;
+		Integer id = ids.get(name.toLowerCase(Locale.ROOT));
+		return (id == null) ? -1 : id;
+	}
+	
+	public Concept getConcept(int id) {
+		return concepts[id];
+	}
+	
+	/***
+	 * Return the depth of a concept, where the root of the taxonomy has the depth given by Concept.getDepth
+	 * 
+	 * @param id the concept id
+	 * @return the concept depth
+	 */
+	public int getDepth(int id) {
+		return depths[id];
+	}
+	
+	/***
+	 * Return the lowest common ancestor of two concepts in constant time
+	 * 
+	 * @param x a concept id
+	 * @param y a concept id
+	 * @return the id of the lowest common ancestor, which is x when x equals y
+	 */
+	public int getCommonAncestor(int x, int y) {
+		int l = first[x], r = first[y];
+		if (l > r) {
+			int tmp = l;
+			l = r;
+			r = tmp;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(r - l + 1);
+		int a = sparse[k][l], b = sparse[k][r - (1 << k) + 1];
+		return (depths[a] <= depths[b]) ? a : b;
+	}
+	
+	/***
+	 * Return the number of concepts in the index
+	 */
+	public int size() {
+		return concepts.length;
+	}
+}
@@ -31,6 +31,7 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  * A distance function that computes the distance between two SemanticFeatures
  * 
  * In order to use this distance function you must provide a taxonomy that describes the Semantic Class hierarchy as a tree
+ * The taxonomy is compiled once into a TaxonomyIndex so concept lookups and common ancestor queries take constant time
  * 
  * The distance calculation finds the lowest common ancestor between the two SemanticFeatures and computes
  * the distance using the algorithm described in:
@@ -42,13 +43,35 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  */
 public class WuPalmerDistance extends DistanceFunction<SemanticFeature> {
 	private static final long serialVersionUID = 2357149443801960761L;
-	private Concept taxonomy;
+	private final TaxonomyIndex taxonomy;
 	
+	/***
+	 * Create the distance function from a snapshot of the taxonomy.  Concepts added to or removed from 
+	 * the taxonomy after construction are not seen by the distance function.
+	 * 
+	 * @param taxonomy the root concept of the taxonomy
+	 */
 	public WuPalmerDistance(Concept taxonomy) {
 		this(taxonomy, 1);
 	}
 	
+	/***
+	 * Create a weighted distance function from a snapshot of the taxonomy
+	 * 
+	 * @param taxonomy the root concept of the taxonomy
+	 * @param weight the weight of the distance function
+	 */
 	public WuPalmerDistance(Concept taxonomy, double weight) {
+		this(new TaxonomyIndex(taxonomy), weight);
+	}
+	
+	/***
+	 * Create the distance function from a taxonomy index, which can be shared with other distance functions
+	 * 
+	 * @param taxonomy the taxonomy index
+	 * @param weight the weight of the distance function
+	 */
+	public WuPalmerDistance(TaxonomyIndex taxonomy, double weight) {
 		super(weight);
 		this.taxonomy = taxonomy;
 	}
@@ -63,15 +86,15 @@ public class WuPalmerDistance extends DistanceFunction<SemanticFeature> {
 //			return 0;
 //		}
 		
-		Concept cx = taxonomy.findConcept(x.getConcept());
-		Concept cy = taxonomy.findConcept(y.getConcept());	
-		Concept lca = cx.findCommonAncestor(cy);
+		int cx = x.getConceptId(taxonomy);
+		int cy = y.getConceptId(taxonomy);
 		
-		// No common ancestor exists - return max distance
-		if (lca != null) {
-			int n3 = lca.getDepth();
-			int n1 = cx.getDepth() - n3;
-			int n2 = cy.getDepth() - n3;			
+		// Concept not in the taxonomy - return max distance
+		if (cx >= 0 && cy >= 0) {
+			int lca = taxonomy.getCommonAncestor(cx, cy);
+			int n3 = taxonomy.getDepth(lca);
+			int n1 = taxonomy.getDepth(cx) - n3;
+			int n2 = taxonomy.getDepth(cy) - n3;			
 			dist = 1.0 -  2.0 * n3 / (n1 + n2 + 2.0 * n3);
 		}
 		return dist;
@@ -24,11 +24,16 @@
  */
 package com.oculusinfo.ml.feature.spatial;
 
+import org.codehaus.jackson.annotate.JsonIgnore;
+
 import com.oculusinfo.ml.feature.Feature;
 
 /***
  * A GeoSpatialFeature represents a latitude and longitude geo-spatial coordinate
  * 
+ * The coordinate in radians and as a unit vector are derived on first use and cached until the 
+ * coordinate changes, so the distance functions do not repeat the conversions for every pair.
+ * 
  * @author slangevin
  *
  */
@@ -37,6 +42,30 @@ public class GeoSpatialFeature extends Feature {
 	private double latitude;
 	private double longitude;
 	
+	/***
+	 * The derived forms of a coordinate.  Like the other cached values of features it is an immutable 
+	 * holder published with a single reference write, so threads racing to fill the cache only repeat 
+	 * the work and never see a partially derived value.
+	 */
+	private static class Derived {
+		final double latRadians, lonRadians;
+		final double cosLat, sinLat;
+		final double cosLon, sinLon;
+		final double[] unit;
+		
+		Derived(double latitude, double longitude) {
+			latRadians = Math.toRadians(latitude);
+			lonRadians = Math.toRadians(longitude);
+			cosLat = Math.cos(latRadians);
+			sinLat = Math.sin(latRadians);
+			cosLon = Math.cos(lonRadians);
+			sinLon = Math.sin(lonRadians);
+			unit = new double[] { cosLat * cosLon, cosLat * sinLon, sinLat };
+		}
+	}
+	
+	private transient Derived derived = null;
+	
 	@Override
 	public String toString() {
 		return (this.getName() + ":[" + latitude + ";" + longitude + "]");
@@ -53,6 +82,7 @@ public class GeoSpatialFeature extends Feature {
 	public void setValue(double latitude, double longitude) {
 		this.latitude = latitude;
 		this.longitude = longitude;
+		this.derived = null;
 	}
 	
 	public double getLatitude() {
@@ -61,6 +91,7 @@ public class GeoSpatialFeature extends Feature {
 	
 	public void setLatitude(double latitude) {
 		this.latitude = latitude;
+		this.derived = null;
 	}
 	
 	public double getLongitude() {
@@ -69,5 +100,56 @@ public class GeoSpatialFeature extends Feature {
 	
 	public void setLongitude(double longitude) {
 		this.longitude = longitude;
+		this.derived = null;
+	}
+	
+	private Derived getDerived() {
+		Derived d = derived;
+		if (d == null) {
+			d = new Derived(latitude, longitude);
+			derived = d;
+		}
+		return d;
+	}
+	
+	@JsonIgnore
+	public double getLatitudeRadians() {
+		return getDerived().latRadians;
+	}
+	
+	@JsonIgnore
+	public double getLongitudeRadians() {
+		return getDerived().lonRadians;
+	}
+	
+	@JsonIgnore
+	public double getCosLatitude() {
+		return getDerived().cosLat;
+	}
+	
+	@JsonIgnore
+	public double getSinLatitude() {
+		return getDerived().sinLat;
+	}
+	
+	@JsonIgnore
+	public double getCosLongitude() {
+		return getDerived().cosLon;
+	}
+	
+	@JsonIgnore
+	public double getSinLongitude() {
+		return getDerived().sinLon;
+	}
+	
+	/***
+	 * Return the coordinate as a unit vector (x, y, z) where z points to the north pole and x to 
+	 * latitude 0, longitude 0.  The array must not be modified.
+	 * 
+	 * @return the unit vector
+	 */
+	@JsonIgnore
+	public double[] getUnitVector() {
+		return getDerived().unit;
 	}
 }
@@ -79,6 +79,7 @@ public class FastGeoSpatialCentroid implements Centroid<GeoSpatialFeature> {
 		GeoSpatialFeature centroid = new GeoSpatialFeature(name);
 		centroid.setValue( (clat), (clon) );  // return average lat, lon - very crude method of determining centroid for geo
 		centroid.setWeight(weight);
+		centroid.getUnitVector();
 		return centroid;
 	}
 
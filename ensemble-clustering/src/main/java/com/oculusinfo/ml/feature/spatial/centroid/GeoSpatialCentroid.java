@@ -45,15 +45,12 @@ public class GeoSpatialCentroid implements Centroid<GeoSpatialFeature> {
 	@Override
 	public void add(GeoSpatialFeature feature) {
 	    double addedWeight = feature.getWeight();
-		double x = 0, y = 0, z = 0, lat = 0, lon = 0;
 		
-		// convert lat/lon to cartesian coordinates
-		lat = Math.toRadians(feature.getLatitude());
-		lon = Math.toRadians(feature.getLongitude());
-		
-		x = Math.sin(lat) * Math.cos(lon);
-		y = Math.sin(lat) * Math.sin(lon);
-		z = Math.cos(lat);
+		// convert lat/lon to cartesian coordinates using the cached sines and cosines of the feature
+		double sinLat = feature.getSinLatitude();
+		double x = sinLat * feature.getCosLongitude();
+		double y = sinLat * feature.getSinLongitude();
+		double z = feature.getCosLatitude();
 		
 		// Increase the weight of this centroid according to what was added.
 		weight += addedWeight;
@@ -67,15 +64,12 @@ public class GeoSpatialCentroid implements Centroid<GeoSpatialFeature> {
 	@Override
 	public void remove(GeoSpatialFeature feature) {
 	    double removedWeight = feature.getWeight();
-		double x = 0, y = 0, z = 0, lat = 0, lon = 0;
-		
-		// convert lat/lon to cartesian coordinates
-		lat = Math.toRadians(feature.getLatitude());
-		lon = Math.toRadians(feature.getLongitude());
 		
-		x = Math.sin(lat) * Math.cos(lon);
-		y = Math.sin(lat) * Math.sin(lon);
-		z = Math.cos(lat);
+		// convert lat/lon to cartesian coordinates using the cached sines and cosines of the feature
+		double sinLat = feature.getSinLatitude();
+		double x = sinLat * feature.getCosLongitude();
+		double y = sinLat * feature.getSinLongitude();
+		double z = feature.getCosLatitude();
 		
 		// decrement the centroid cartesian coordinates
 		cx -= x * removedWeight;
@@ -108,6 +102,9 @@ public class GeoSpatialCentroid implements Centroid<GeoSpatialFeature> {
 		GeoSpatialFeature centroid = new GeoSpatialFeature(name);
 		centroid.setValue(lat, lon);
 		centroid.setWeight(weight);
+		
+		// derive the unit vector up front
+		centroid.getUnitVector();
 	
 		return centroid;
 	}
@@ -30,6 +30,9 @@ import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 /***
  * A distance function that computes the equitangular distance between two GeoSpatialFeatures 
  * 
+ * The cosine of the mean latitude is derived from the cached sines and cosines of the latitudes 
+ * so no trigonometric functions are evaluated per comparison
+ * 
  * @author slangevin
  *
  */
@@ -42,12 +45,14 @@ public class EquitangularDistance extends DistanceFunction<GeoSpatialFeature> {
 
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = Math.toRadians(x.getLatitude());
-		double lat2 = Math.toRadians(y.getLatitude());
-		double lon1 = Math.toRadians(x.getLongitude());
-		double lon2 = Math.toRadians(y.getLongitude());
+		double lat1 = x.getLatitudeRadians();
+		double lat2 = y.getLatitudeRadians();
+		double lon1 = x.getLongitudeRadians();
+		double lon2 = y.getLongitudeRadians();
 		
-		double a = (lon2-lon1) * Math.cos((lat1+lat2)/2);
+		// cos((lat1+lat2)/2) = sqrt((1 + cos(lat1+lat2)) / 2), non-negative since the mean latitude is within +/- pi/2
+		double cosSum = x.getCosLatitude() * y.getCosLatitude() - x.getSinLatitude() * y.getSinLatitude();
+		double a = (lon2-lon1) * Math.sqrt(Math.max(0, (1 + cosSum) / 2));
 		double b = (lat2-lat1);
 		double d = Math.sqrt(a*a + b*b);
 		
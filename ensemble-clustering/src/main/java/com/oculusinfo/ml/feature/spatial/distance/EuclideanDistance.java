@@ -42,6 +42,11 @@ public class EuclideanDistance extends DistanceFunction<GeoSpatialFeature> {
 		super(weight);
 	}
 	
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+	
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
 		double lat1 = x.getLatitude();
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.spatial.distance;
+
+import java.io.Serializable;
+
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+
+/***
+ * Great circle calculations on the cached unit vectors of GeoSpatialFeatures.
+ * 
+ * The central angle is computed from the chord between the two unit vectors.  The haversine of the 
+ * angle is (chord / 2)^2, so this is the haversine formula without the conversions from latitude and 
+ * longitude, and is accurate for both small and antipodal distances.  Cutoffs are compared in chord space so a distance beyond the 
+ * cutoff costs no trigonometry at all.
+ * 
+ * @author slangevin
+ *
+ */
+public final class GreatCircle implements Serializable {
+	private static final long serialVersionUID = 3127624785135706264L;
+	
+	/***
+	 * A normalized distance cutoff and the squared chord it corresponds to
+	 */
+	private static class Cutoff {
+		final double cutoff;
+		final double chord2;
+		
+		Cutoff(double cutoff) {
+			this.cutoff = cutoff;
+			double chord = 2 * Math.sin(cutoff * Math.PI / 2);
+			this.chord2 = chord * chord;
+		}
+	}
+	
+	// the last cutoff seen, which is usually the same for every comparison of a clustering pass
+	private transient Cutoff last = null;
+	
+	GreatCircle() { }
+	
+	/***
+	 * Return the squared length of the chord between two coordinates on the unit sphere
+	 */
+	static double chord2(GeoSpatialFeature x, GeoSpatialFeature y) {
+		double[] u = x.getUnitVector();
+		double[] v = y.getUnitVector();
+		double dx = u[0] - v[0], dy = u[1] - v[1], dz = u[2] - v[2];
+		return dx*dx + dy*dy + dz*dz;
+	}
+	
+	/***
+	 * Return the central angle in radians for a squared chord length
+	 */
+	static double angle(double chord2) {
+		// atan2 rather than asin, which is much slower on some JVMs; guard against rounding past 1 for antipodal points
+		double a = Math.min(1, chord2 / 4);
+		return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+	
+	/***
+	 * Return the central angle in radians between two coordinates
+	 */
+	public static double angle(GeoSpatialFeature x, GeoSpatialFeature y) {
+		return angle(chord2(x, y));
+	}
+	
+	/***
+	 * Return the central angle normalized by pi if it is at most cutoff, otherwise a value greater than cutoff
+	 */
+	double normDistance(GeoSpatialFeature x, GeoSpatialFeature y, double cutoff) {
+		double chord2 = chord2(x, y);
+		if (cutoff < 0 || cutoff >= 1) return angle(chord2) / Math.PI;
+		
+		Cutoff c = last;
+		if (c == null || c.cutoff != cutoff) {
+			c = new Cutoff(cutoff);
+			last = c;
+		}
+		// allow for rounding in the conversion of the cutoff so a distance at the cutoff is exact
+		if (chord2 > c.chord2 * (1 + 1e-12)) {
+			// the angle is at least the chord, and beyond the cutoff
+			return Math.max(Math.sqrt(chord2) / Math.PI, Math.nextUp(cutoff));
+		}
+		return angle(chord2) / Math.PI;
+	}
+}
@@ -30,46 +30,38 @@ import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 /***
  * A distance function that computes the normalized Haversine (Great Circle) distance between two GeoSpatialFeatures
  * 
+ * The central angle is computed from the chord between the cached unit vectors of the features (see GreatCircle)
+ * 
  * @author slangevin
  *
  */
 public class HaversineDistance extends DistanceFunction<GeoSpatialFeature> {
 	private static final long serialVersionUID = -779446291214228343L;
 	private final static double EARTH_RADIUS = 6371.00; // Radius in Kilometers default
+	private final GreatCircle greatCircle = new GreatCircle();
 	
 	public HaversineDistance(double weight) {
 		super(weight);
 	}
 	
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+	
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = x.getLatitude();
-		double lat2 = y.getLatitude();
-		double lon1 = x.getLongitude();
-		double lon2 = y.getLongitude();
-	    double dLat = Math.toRadians(lat2 - lat1);
-	    double dLng = Math.toRadians(lon2 - lon1);
-	    
-	    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-	               Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-	               Math.sin(dLng / 2) * Math.sin(dLng / 2);
-
-	    double normDist = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)) / Math.PI;
+	    double normDist = GreatCircle.angle(x, y) / Math.PI;
 	    return normDist;
 	}
 	
+	@Override
+	public double distance(GeoSpatialFeature x, GeoSpatialFeature y, double cutoff) {
+		return greatCircle.normDistance(x, y, cutoff);
+	}
+	
 	public double distanceInKM(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = x.getLatitude();
-		double lat2 = y.getLatitude();
-		double lon1 = x.getLongitude();
-		double lon2 = y.getLongitude();
-        double dLat = Math.toRadians(lat2-lat1);
-        double dLng = Math.toRadians(lon2-lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLng/2) * Math.sin(dLng/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        double dist = EARTH_RADIUS * c;
+        double dist = EARTH_RADIUS * GreatCircle.angle(x, y);
         return dist;
 	}
 }
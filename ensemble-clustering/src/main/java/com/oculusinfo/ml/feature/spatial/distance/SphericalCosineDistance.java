@@ -29,30 +29,38 @@ import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
 /***
  * A distance function that computes the Spherical Cosine distance between two GeoSpatialFeatures
+ * 
+ * The angle is computed from the chord between the cached unit vectors of the features (see GreatCircle), 
+ * which equals the spherical law of cosines without its loss of precision for nearby points
+ * 
  * @author slangevin
  *
  */
 public class SphericalCosineDistance extends DistanceFunction<GeoSpatialFeature> {
 	private static final long serialVersionUID = -4202417997475962513L;
 	private final static double EARTH_RADIUS = 6371.00; // Radius in Kilometers default
+	private final GreatCircle greatCircle = new GreatCircle();
 
 	public SphericalCosineDistance(double weight) {
 		super(weight);
 	}
 	
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+	
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = Math.toRadians(x.getLatitude());
-		double lat2 = Math.toRadians(y.getLatitude());
-		double lon1 = Math.toRadians(x.getLongitude());
-		double lon2 = Math.toRadians(y.getLongitude());
-		
-		double d = Math.acos(Math.sin(lat1)*Math.sin(lat2) + 
-                Math.cos(lat1)*Math.cos(lat2) *
-                Math.cos(lon2-lon1));
+		double d = GreatCircle.angle(x, y);
 		double normDist = d / Math.PI;
 		return normDist;
 	}
+	
+	@Override
+	public double distance(GeoSpatialFeature x, GeoSpatialFeature y, double cutoff) {
+		return greatCircle.normDistance(x, y, cutoff);
+	}
 
 	public double distanceInKM(GeoSpatialFeature x, GeoSpatialFeature y) {
         return distance(x, y) * EARTH_RADIUS;
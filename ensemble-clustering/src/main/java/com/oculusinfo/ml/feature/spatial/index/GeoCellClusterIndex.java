@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.spatial.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.GreatCircle;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * A latitude / longitude grid cell index over the GeoSpatialFeature centroids of clusters for use 
+ * with the HaversineDistance or SphericalCosineDistance functions.
+ * 
+ * Both distance functions are the central angle between two points normalized by PI, so a search 
+ * radius is converted back to radians and only the grid cells that intersect the spherical cap of 
+ * that angle around the query point are visited.  The longitude range of the cap widens with latitude 
+ * and covers every cell once the cap reaches a pole, and cells wrap around the anti-meridian.
+ * 
+ * The cell size should be on the order of the clustering threshold: much smaller cells mean many 
+ * cells per query and much larger cells mean many candidates per cell.  Candidates are returned in 
+ * the order the clusters were indexed so ties are broken as they would be without the index.
+ * 
+ * @author slangevin
+ *
+ */
+public class GeoCellClusterIndex extends AbstractClusterIndex {
+	private final static double EPSILON = 1e-9;
+	
+	private final double cellSize;
+	private final int rows;
+	private final int cols;
+	
+	private final Map<Long, List<Cluster>> cells = new HashMap<Long, List<Cluster>>();
+	private final Map<Cluster, Long> cellOf = new IdentityHashMap<Cluster, Long>();
+	
+	/***
+	 * Create a geo cell cluster index
+	 * 
+	 * @param featureName the name of the GeoSpatialFeature
+	 * @param cellSize the size of a grid cell in degrees
+	 */
+	public GeoCellClusterIndex(String featureName, double cellSize) {
+		super(featureName);
+		this.cellSize = cellSize;
+		this.rows = (int)Math.ceil(180 / cellSize);
+		this.cols = (int)Math.ceil(360 / cellSize);
+	}
+	
+	public double getCellSize() {
+		return cellSize;
+	}
+	
+	private GeoSpatialFeature getGeo(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof GeoSpatialFeature == false) return null;
+		return (GeoSpatialFeature)feature;
+	}
+	
+	private int getRow(double lat) {
+		int row = (int)Math.floor((lat + 90) / cellSize);
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+	
+	private int getCol(double lon) {
+		int col = (int)Math.floor((lon + 180) / cellSize) % cols;
+		return (col < 0) ? col + cols : col;
+	}
+	
+	private long getKey(int row, int col) {
+		return (long)row * cols + col;
+	}
+	
+	private void add(Cluster cluster) {
+		addOrdinal(cluster);
+		
+		GeoSpatialFeature geo = getGeo(cluster);
+		if (geo == null) {
+			unindexed.add(cluster);
+			cellOf.put(cluster, null);
+			return;
+		}
+		
+		Long key = getKey(getRow(geo.getLatitude()), getCol(geo.getLongitude()));
+		List<Cluster> cell = cells.get(key);
+		if (cell == null) {
+			cell = new ArrayList<Cluster>(2);
+			cells.put(key, cell);
+		}
+		cell.add(cluster);
+		cellOf.put(cluster, key);
+	}
+
+	@Override
+	protected void clear() {
+		super.clear();
+		cells.clear();
+		cellOf.clear();
+	}
+
+	@Override
+	public void build(List<Cluster> clusters) {
+		clear();
+		
+		for (Cluster c : clusters) {
+			add(c);
+		}
+	}
+
+	@Override
+	public void update(Cluster cluster) {
+		if (cellOf.containsKey(cluster)) {
+			Long key = cellOf.get(cluster);
+			if (key == null) {
+				if (getGeo(cluster) == null) return;
+				unindexed.remove(cluster);
+			}
+			else {
+				GeoSpatialFeature geo = getGeo(cluster);
+				// nothing to do if the centroid is still in the same cell
+				if (geo != null && key == getKey(getRow(geo.getLatitude()), getCol(geo.getLongitude()))) return;
+				
+				List<Cluster> cell = cells.get(key);
+				cell.remove(cluster);
+				if (cell.isEmpty()) cells.remove(key);
+			}
+		}
+		add(cluster);
+	}
+	
+	/***
+	 * Add the clusters in every cell that intersects the spherical cap of angle radians around geo to result
+	 * 
+	 * @return false if the cap covers more cells than are occupied and a full scan is cheaper
+	 */
+	private boolean collect(GeoSpatialFeature geo, double angle, List<Cluster> result) {
+		double lat = geo.getLatitude();
+		double latRad = Math.toRadians(lat);
+		double dLat = Math.toDegrees(angle) + EPSILON;
+		
+		int minRow = getRow(lat - dLat);
+		int maxRow = getRow(lat + dLat);
+		
+		// the longitude half width of the cap is asin(sin(angle) / cos(lat)) until the cap contains a pole
+		int numCols = cols;
+		int minCol = 0;
+		if (angle < Math.PI / 2 - Math.abs(latRad)) {
+			double dLon = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(latRad))) + EPSILON;
+			int span = (int)Math.floor((geo.getLongitude() + dLon + 180) / cellSize) - 
+					   (int)Math.floor((geo.getLongitude() - dLon + 180) / cellSize) + 1;
+			if (span < cols) {
+				numCols = span;
+				minCol = getCol(geo.getLongitude() - dLon);
+			}
+		}
+		
+		if ((long)(maxRow - minRow + 1) * numCols > cells.size()) return false;
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int i = 0; i < numCols; i++) {
+				List<Cluster> cell = cells.get(getKey(row, (minCol + i) % cols));
+				if (cell != null) result.addAll(cell);
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		GeoSpatialFeature geo = getGeo(inst);
+		if (geo == null || radius >= 1) return null;
+		
+		// the geo distance functions are normalized by PI
+		double angle = radius * Math.PI;
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed);
+		if (!collect(geo, angle, result)) return null;
+		sortInIndexOrder(result);
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		GeoSpatialFeature geo = getGeo(inst);
+		if (geo == null) return null;
+		
+		// widen the search until the nearest centroid found is within the searched cap
+		double angle = Math.toRadians(cellSize);
+		while (angle < Math.PI) {
+			List<Cluster> found = new ArrayList<Cluster>();
+			if (!collect(geo, angle, found)) return null;
+			
+			Cluster nearest = null;
+			double best = Double.MAX_VALUE;
+			for (Cluster c : found) {
+				double d = GreatCircle.angle(geo, getGeo(c));
+				if (d < best) {
+					best = d;
+					nearest = c;
+				}
+			}
+			if (nearest != null && best <= angle) {
+				List<Cluster> result = new ArrayList<Cluster>(unindexed);
+				result.add(nearest);
+				return result;
+			}
+			angle *= 2;
+		}
+		return null;
+	}
+}
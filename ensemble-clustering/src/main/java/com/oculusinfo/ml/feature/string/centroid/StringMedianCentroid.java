@@ -26,16 +26,18 @@ package com.oculusinfo.ml.feature.string.centroid;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.oculusinfo.ml.centroid.Centroid;
-import com.oculusinfo.ml.feature.bagofwords.distance.EditDistance;
 import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
 
 /***
  * A Centroid for StringFeatures that represents the centroid using an approximation of the string median algorithm
@@ -47,6 +49,13 @@ import com.oculusinfo.ml.feature.string.StringFeature;
  * For each test point, the sum of distances to every point belonging to P is calculated and stored. 
  * The test point that minimizes this sum is selected as the median of the set.
  * 
+ * To keep the cost of online updates bounded the set P is a uniform reservoir sample of at most 
+ * sampleSize members, and the median is cached and only recomputed once the membership has changed 
+ * by more than updateFraction of its size since the last computation (or the median member is removed).  
+ * The distance passes are run in parallel on an executor, if one is set, when the sample is at least 
+ * parallelThreshold points.  The executor can be the clusterer's (see AbstractClusterer.getExecutor) 
+ * as long as its threads never update centroids, otherwise tasks waiting on tasks can deadlock it.
+ * 
  * @author slangevin
  *
  */
@@ -55,31 +64,138 @@ public class StringMedianCentroid implements Centroid<StringFeature> {
 	private static final int NUM_REFERENCE = 10;
 	private static final int NUM_TEST = 10;
 	
+	private static final int DEFAULT_SAMPLE_SIZE = 1000;
+	private static final double DEFAULT_UPDATE_FRACTION = 0.1;
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 500;
+	
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static volatile ExecutorService defaultExecutor = null;
+	
 	private String name;
-	private String[] referencePoints = new String[NUM_REFERENCE];
-	private String[] testPoints = new String[NUM_REFERENCE];
+	private transient ExecutorService executor = null;
+	private int sampleSize = DEFAULT_SAMPLE_SIZE;
+	private double updateFraction = DEFAULT_UPDATE_FRACTION;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 	
-	private Map<String, StringFeature> points = new HashMap<String, StringFeature>();
+	// members are keyed by identity since every feature in the cluster shares the same name
+	private Map<StringFeature, StringFeature> points = new IdentityHashMap<StringFeature, StringFeature>();
 	
+	// reservoir sample of the points and the index of each sampled point in it
+	private List<StringFeature> sample = new ArrayList<StringFeature>();
+	private Map<StringFeature, Integer> sampleSlots = new IdentityHashMap<StringFeature, Integer>();
+	private long seen = 0;
+	private Random random = new Random();
 	
-	private class DistanceScore {
-		public String feature;
-		public Double distance;
-		
-		public DistanceScore(String feature, double distance) {
-			this.feature = feature;
-			this.distance = distance;
-		}
+	// cached median and the number of membership changes since it was computed
+	private String median = null;
+	private StringFeature medianPoint = null;
+	private int changes = 0;
+	private int computedSize = 0;
+	
+	/***
+	 * Set the largest number of points sampled to compute the median
+	 * 
+	 * @param sampleSize
+	 */
+	public void setSampleSize(int sampleSize) {
+		this.sampleSize = sampleSize;
+		this.median = null;
+	}
+	
+	public int getSampleSize() {
+		return sampleSize;
+	}
+	
+	/***
+	 * Set the fraction of the membership that must change before the median is recomputed.  
+	 * A fraction of 0 recomputes the median after every change.
+	 * 
+	 * @param updateFraction
+	 */
+	public void setUpdateFraction(double updateFraction) {
+		this.updateFraction = updateFraction;
+	}
+	
+	public double getUpdateFraction() {
+		return updateFraction;
+	}
+	
+	/***
+	 * Set the smallest sample that has its distances computed in parallel
+	 * 
+	 * @param parallelThreshold
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/***
+	 * Set the executor the distances of large samples are computed on, or null to use the default executor
+	 * 
+	 * @param executor
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	public ExecutorService getExecutor() {
+		return (executor != null) ? executor : defaultExecutor;
+	}
+	
+	/***
+	 * Set the executor used by every StringMedianCentroid that has no executor of its own.  
+	 * When there is no executor the distances are computed on the calling thread.
+	 * 
+	 * @param executor
+	 */
+	public static void setDefaultExecutor(ExecutorService executor) {
+		defaultExecutor = executor;
+	}
+	
+	public static ExecutorService getDefaultExecutor() {
+		return defaultExecutor;
 	}
 	
 	@Override
 	public void add(StringFeature feature) {
-		points.put(feature.getId(), feature);
+		if (points.put(feature, feature) != null) return;
+		
+		// reservoir sampling
+		seen++;
+		if (sample.size() < sampleSize) {
+			sampleSlots.put(feature, sample.size());
+			sample.add(feature);
+		}
+		else {
+			long j = (long)(random.nextDouble() * seen);
+			if (j < sampleSize) {
+				sampleSlots.remove(sample.get((int)j));
+				sampleSlots.put(feature, (int)j);
+				sample.set((int)j, feature);
+			}
+		}
+		changes++;
 	}
 	
 	@Override
 	public void remove(StringFeature feature) {
-		points.remove(feature.getId());
+		if (points.remove(feature) == null) return;
+		
+		Integer slot = sampleSlots.remove(feature);
+		if (slot != null) {
+			// move the last sampled point into the vacated slot
+			StringFeature last = sample.remove(sample.size() - 1);
+			if (slot < sample.size()) {
+				sample.set(slot, last);
+				sampleSlots.put(last, slot);
+			}
+		}
+		if (feature == medianPoint) median = null;
+		changes++;
 	}
 
 	@Override
@@ -87,83 +203,171 @@ public class StringMedianCentroid implements Centroid<StringFeature> {
         return points.values();
     }
 	
-	private void computeTestPoints() {
-		int nr = Math.min(NUM_REFERENCE, points.size());
+	/***
+	 * Rebuild the reservoir with a single pass over the points, used when removals have depleted it
+	 */
+	private void resample() {
+		sample.clear();
+		sampleSlots.clear();
+		seen = 0;
 		
-		// compute the distances of all points to the reference points
-		List<DistanceScore> distances = new LinkedList<DistanceScore>();
-		for (String key : points.keySet()) {
-			double sum = 0;
-			StringFeature f = points.get(key);
-			for (int i=0; i < nr; i++) {
-				sum += EditDistance.getNormLevenshteinDistance(referencePoints[i], f.getValue());
+		for (StringFeature f : points.values()) {
+			seen++;
+			if (sample.size() < sampleSize) {
+				sampleSlots.put(f, sample.size());
+				sample.add(f);
+			}
+			else {
+				long j = (long)(random.nextDouble() * seen);
+				if (j < sampleSize) {
+					sampleSlots.remove(sample.get((int)j));
+					sampleSlots.put(f, (int)j);
+					sample.set((int)j, f);
+				}
 			}
-			distances.add(new DistanceScore(f.getValue(), sum));
 		}
+	}
+	
+	/***
+	 * Compute the distances from each anchor to each value, splitting the values across threads for large samples
+	 */
+	private double[][] computeDistances(final String[] anchors, final String[] values) {
+		final double[][] distances = new double[anchors.length][values.length];
 		
-		// sort by distance
-		Collections.sort(distances, new Comparator<DistanceScore>() {
-			public int compare(DistanceScore o1, DistanceScore o2) {
-				return o1.distance.compareTo(o2.distance);
-			}
-		});
+		ExecutorService exec = getExecutor();
+		if (exec == null || values.length < parallelThreshold || THREADS < 2) {
+			computeDistances(anchors, values, distances, 0, values.length);
+			return distances;
+		}
 		
-		// set the test points
-		int nt = Math.min(NUM_TEST, points.size());
-		for (int i=0; i < nt; i++) {
-			testPoints[i] = distances.get(i).feature;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(THREADS);
+		int chunk = (values.length + THREADS - 1) / THREADS;
+		for (int start = 0; start < values.length; start += chunk) {
+			final int from = start;
+			final int to = Math.min(start + chunk, values.length);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					computeDistances(anchors, values, distances, from, to);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> result : exec.invokeAll(tasks)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return distances;
+	}
+	
+	private static void computeDistances(String[] anchors, String[] values, double[][] distances, int from, int to) {
+		for (int i=0; i < anchors.length; i++) {
+			for (int j=from; j < to; j++) {
+				distances[i][j] = EditDistance.getNormLevenshteinDistance(anchors[i], values[j]);
+			}
 		}
 	}
 	
 	//TODO this should take into account the count of the strings
-	private String computeMedian() {
-		int nt = Math.min(NUM_TEST, points.size());
+	private void computeMedian() {
+		int n = sample.size();
 		
-		if (nt == 0) return "";
+		String[] values = new String[n];
+		for (int j=0; j < n; j++) {
+			values[j] = sample.get(j).getValue();
+		}
 		
-		// compute the distances of test points all points 
-		List<DistanceScore> distances = new LinkedList<DistanceScore>();
-		for (int i=0; i < nt; i++) {
-			double sum = 0;
-			for (String key : points.keySet()) {
-				StringFeature f = points.get(key);
-				sum += EditDistance.getNormLevenshteinDistance(testPoints[i], f.getName());
+		// pick random reference points and compute the sum of distances of all points to them
+		int nr = Math.min(NUM_REFERENCE, n);
+		String[] referencePoints = new String[nr];
+		for (int i=0; i < nr; i++) {
+			// partial Fisher-Yates shuffle of the sample
+			int j = i + random.nextInt(n - i);
+			StringFeature tmp = sample.get(i);
+			sample.set(i, sample.get(j));
+			sample.set(j, tmp);
+			sampleSlots.put(sample.get(i), i);
+			sampleSlots.put(sample.get(j), j);
+			String v = values[i];
+			values[i] = values[j];
+			values[j] = v;
+			referencePoints[i] = values[i];
+		}
+		double[][] refDistances = computeDistances(referencePoints, values);
+		double[] refSums = new double[n];
+		for (int i=0; i < nr; i++) {
+			for (int j=0; j < n; j++) {
+				refSums[j] += refDistances[i][j];
 			}
-			distances.add(new DistanceScore(testPoints[i], sum));
 		}
 		
-		// sort by distance
-		Collections.sort(distances, new Comparator<DistanceScore>() {
-			public int compare(DistanceScore o1, DistanceScore o2) {
-				return o1.distance.compareTo(o2.distance);
+		// select the test points with the lowest sums, plus the current median to keep it stable
+		int nt = Math.min(NUM_TEST, n);
+		int[] testIdx = new int[nt];
+		boolean[] taken = new boolean[n];
+		for (int i=0; i < nt; i++) {
+			int best = -1;
+			for (int j=0; j < n; j++) {
+				if (!taken[j] && (best < 0 || refSums[j] < refSums[best])) best = j;
 			}
-		});
-		
-		// return the smallest distance point as median	
-		return distances.get(0).feature;
-	}
-	
-	private void setReferencePoints() {
-		int n = Math.min(NUM_REFERENCE, points.size());
+			taken[best] = true;
+			testIdx[i] = best;
+		}
 		
-		ArrayList<String> keys = new ArrayList<String>(points.keySet());
-		Collections.shuffle(keys);
+		StringFeature current = (medianPoint != null && points.containsKey(medianPoint)) ? medianPoint : null;
+		String[] testPoints = new String[nt + (current != null ? 1 : 0)];
+		for (int i=0; i < nt; i++) {
+			testPoints[i] = values[testIdx[i]];
+		}
+		if (current != null) testPoints[nt] = current.getValue();
 		
-		for (int i=0; i < n; i++) {
-			referencePoints[i] = points.get(keys.get(i)).getValue();
+		// compute the distances of the test points to all points and pick the smallest sum
+		double[][] testDistances = computeDistances(testPoints, values);
+		int best = 0;
+		double bestSum = Double.MAX_VALUE;
+		for (int i=0; i < testPoints.length; i++) {
+			double sum = 0;
+			for (int j=0; j < n; j++) {
+				sum += testDistances[i][j];
+			}
+			if (sum < bestSum) {
+				bestSum = sum;
+				best = i;
+			}
 		}
+		
+		median = testPoints[best];
+		medianPoint = (best < nt) ? sample.get(testIdx[best]) : current;
 	}
 
 	@Override
 	public StringFeature getCentroid() {
-		StringFeature median = new StringFeature(name);
+		StringFeature centroid = new StringFeature(name);
 		
-		setReferencePoints();
-		computeTestPoints();
-	
-		median.setValue( computeMedian() );
+		if (points.isEmpty()) {
+			median = null;
+			medianPoint = null;
+			centroid.setValue("");
+			return centroid;
+		}
+		
+		if (median == null || changes > updateFraction * computedSize) {
+			if (sample.size() < Math.min(sampleSize, points.size())) {
+				resample();
+			}
+			computeMedian();
+			changes = 0;
+			computedSize = points.size();
+		}
+		centroid.setValue(median);
 		
-		return median;
+		return centroid;
 	}
 
 	@Override
@@ -183,9 +387,14 @@ public class StringMedianCentroid implements Centroid<StringFeature> {
 
 	@Override
 	public void reset() {
-		referencePoints = new String[NUM_REFERENCE];
-		testPoints = new String[NUM_REFERENCE];
 		points.clear();
+		sample.clear();
+		sampleSlots.clear();
+		seen = 0;
+		median = null;
+		medianPoint = null;
+		changes = 0;
+		computedSize = 0;
 	}
 	
 }
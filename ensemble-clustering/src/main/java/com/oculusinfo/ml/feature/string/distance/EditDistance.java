@@ -35,6 +35,18 @@ import com.oculusinfo.ml.feature.string.StringFeature;
  */
 public class EditDistance extends DistanceFunction<StringFeature> {
 	private static final long serialVersionUID = -1270784860823146795L;
+	
+	// the longest string that fits the bit-parallel calculation
+	private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+	
+	// slack so that a cutoff of k / norm allows k edits despite rounding
+	private static final double EPSILON = 1e-9;
+	
+	// reusable cost arrays so the Levenshtein calculations do not allocate
+	private static final ThreadLocal<int[][]> costArrays = new ThreadLocal<int[][]>();
+	
+	// reusable match masks of the Latin-1 characters for the bit-parallel calculation
+	private static final ThreadLocal<long[]> matchMasks = new ThreadLocal<long[]>();
 
 	public EditDistance() {
 		super(1);
@@ -49,6 +61,89 @@ public class EditDistance extends DistanceFunction<StringFeature> {
 		return getNormLevenshteinDistance(x.getValue(), y.getValue());
 	}
 	
+	@Override
+	public double distance(StringFeature x, StringFeature y, double cutoff) {
+		return getNormLevenshteinDistance(x.getValue(), y.getValue(), cutoff);
+	}
+	
+	/***
+	 * Return the two cost arrays of the calling thread, growing them to at least length if needed
+	 */
+	private static int[][] getCostArrays(int length) {
+		int[][] arrays = costArrays.get();
+		if (arrays == null || arrays[0].length < length) {
+			arrays = new int[2][Math.max(length, 32)];
+			costArrays.set(arrays);
+		}
+		return arrays;
+	}
+	
+	/***
+	 * Bit-parallel Levenshtein distance (Myers / Hyyro) for a pattern of at most 64 characters.  Each column 
+	 * of the cost matrix is held as bit vectors of the differences between vertically adjacent cells, so 
+	 * a whole column is computed with a few word operations per character of the text.
+	 * 
+	 * @param pattern the shorter string, 1 to 64 characters
+	 * @param text the other string
+	 * @param limit the largest number of edits of interest
+	 * @return the edit distance if at most limit, otherwise a number of edits greater than limit
+	 */
+	private static int getBitParallelLevenshteinDistance(String pattern, String text, double limit) {
+		int n = pattern.length();
+		int m = text.length();
+		
+		long[] masks = matchMasks.get();
+		if (masks == null) {
+			masks = new long[256];
+			matchMasks.set(masks);
+		}
+		
+		// bit i of the mask of a character is set if it is the ith character of the pattern
+		for (int i = 0; i < n; i++) {
+			char c = pattern.charAt(i);
+			if (c < masks.length) masks[c] |= 1L << i;
+		}
+		
+		long pv = -1L, mv = 0L;  // positive and negative vertical differences
+		long last = 1L << (n - 1);
+		int score = n;
+		
+		for (int j = 0; j < m; j++) {
+			char c = text.charAt(j);
+			long eq = 0;
+			if (c < masks.length) {
+				eq = masks[c];
+			}
+			else {
+				for (int i = 0; i < n; i++) {
+					if (pattern.charAt(i) == c) eq |= 1L << i;
+				}
+			}
+			
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0) score++;
+			else if ((mh & last) != 0) score--;
+			
+			// the top row of the cost matrix increases by one in every column
+			ph = (ph << 1) | 1;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+			
+			// each remaining character of the text lowers the distance by at most one
+			if (score - (m - j - 1) > limit) break;
+		}
+		
+		for (int i = 0; i < n; i++) {
+			char c = pattern.charAt(i);
+			if (c < masks.length) masks[c] = 0;
+		}
+		return score;
+	}
+	
 	// Levenshtein Distance Algorithm based on implementation from Apache Jakarta Commons Project, 
 	// implementation from here:  http://www.merriampark.com/ldjava.htm
 	public static double getNormLevenshteinDistance(String s, String t) {
@@ -79,9 +174,16 @@ public class EditDistance extends DistanceFunction<StringFeature> {
 		} else if (m == 0) {
 			return n;
 		}
+		
+		// use the bit-parallel calculation when the shorter string fits in a word
+		if (Math.min(n, m) <= MAX_BIT_PARALLEL_LENGTH) {
+			int edits = (n <= m) ? getBitParallelLevenshteinDistance(s, t, Double.MAX_VALUE) : getBitParallelLevenshteinDistance(t, s, Double.MAX_VALUE);
+			return ( (double) edits / Math.max(n, m) );
+		}
 
-		int p[] = new int[n+1]; //'previous' cost array, horizontally
-		int d[] = new int[n+1]; // cost array, horizontally
+		int[][] arrays = getCostArrays(n+1);
+		int p[] = arrays[0]; //'previous' cost array, horizontally
+		int d[] = arrays[1]; // cost array, horizontally
 		int _d[]; //placeholder to assist in swapping p and d
 
 		// indexes into strings s and t
@@ -117,4 +219,71 @@ public class EditDistance extends DistanceFunction<StringFeature> {
 		// distance is normalized to [0, 1]
 		return ( (double) p[n] / Math.max(n, m) );
 	}	
+	
+	/***
+	 * Bounded normalized Levenshtein distance that abandons the calculation once the distance is known
+	 * to exceed cutoff.  Only the diagonal band of the cost matrix that can hold an alignment within the 
+	 * number of edits allowed by cutoff is computed, and as the edit distance is at least the minimum cost 
+	 * in any row, the calculation stops as soon as every cell of a row in the band exceeds that number.
+	 * 
+	 * @param s
+	 * @param t
+	 * @param cutoff the largest normalized distance the caller is interested in
+	 * @return the normalized distance if less than or equal to cutoff, otherwise a value greater than cutoff
+	 */
+	public static double getNormLevenshteinDistance(String s, String t, double cutoff) {
+		if (s == null || t == null) throw new IllegalArgumentException("Strings must not be null");
+		
+		int n = s.length(); // length of s
+		int m = t.length(); // length of t
+		
+		// the normalized distance of non-empty strings never exceeds 1 so there is nothing to bound
+		if (n == 0 || m == 0 || cutoff >= 1) return getNormLevenshteinDistance(s, t);
+		
+		double norm = Math.max(n, m);
+		double limit = cutoff * norm + EPSILON;  // the largest number of edits within the cutoff
+		
+		// at least the difference in length of edits are required
+		if (Math.abs(n - m) > limit) return Math.abs(n - m) / norm;
+		
+		if (Math.min(n, m) <= MAX_BIT_PARALLEL_LENGTH) {
+			int edits = (n <= m) ? getBitParallelLevenshteinDistance(s, t, limit) : getBitParallelLevenshteinDistance(t, s, limit);
+			return edits / norm;
+		}
+		
+		// only cells within k of the diagonal can be on an alignment with at most k edits (Ukkonen)
+		int k = (int)limit;
+		int outside = k + 1;  // the cost of any cell outside the band is at least k + 1
+		
+		int[][] arrays = getCostArrays(n+1);
+		int p[] = arrays[0]; //'previous' cost array, horizontally
+		int d[] = arrays[1]; // cost array, horizontally
+		int _d[]; //placeholder to assist in swapping p and d
+		
+		for (int i = 0; i<=n; i++) {
+			p[i] = (i <= k) ? i : outside;
+			d[i] = outside;
+		}
+		
+		for (int j = 1; j<=m; j++) {
+			char t_j = t.charAt(j-1);
+			int lo = Math.max(1, j-k);
+			int hi = Math.min(n, j+k);
+			d[lo-1] = (lo == 1) ? j : outside;
+			int rowMin = d[lo-1];
+			
+			for (int i=lo; i<=hi; i++) {
+				int cost = s.charAt(i-1)==t_j ? 0 : 1;
+				d[i] = Math.min(Math.min(d[i-1]+1, p[i]+1),  p[i-1]+cost);
+				if (d[i] < rowMin) rowMin = d[i];
+			}
+			// every cell in the band exceeds the cutoff - abandon the calculation
+			if (rowMin > k) return rowMin / norm;
+			
+			_d = p;
+			p = d;
+			d = _d;
+		}
+		return ( (double) p[n] / norm );
+	}
 }
@@ -44,6 +44,11 @@ public class ExactTokenMatchDistance extends DistanceFunction<StringFeature> {
 		super(weight);
 	}
 	
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+	
 	@Override
 	public double distance(StringFeature x, StringFeature y) {
 		return (x.getValue().equalsIgnoreCase(y.getValue())) ? 0 : 1;
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.string.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * A q-gram inverted index over the StringFeature centroids of clusters for use with the string 
+ * EditDistance function.
+ * 
+ * EditDistance is the Levenshtein distance normalized by the length of the longer string, so a 
+ * centroid of length m within a normalized radius r of a query of length n allows at most 
+ * k = r * max(n, m) edits.  Candidates are found with two filters:
+ * 
+ * Length filtering - at least |n - m| edits are needed, so m lies in [n * (1 - r), n / (1 - r)].
+ * 
+ * Count filtering - each edit destroys at most q of the q-grams of a string, so two strings within 
+ * k edits share at least max(n, m) - q + 1 - k * q q-grams.  The shared q-grams of every centroid 
+ * are counted from the postings of the query's q-grams.  Centroids of lengths where this bound is 
+ * not positive are all returned.
+ * 
+ * When a cluster's median changes its old entry is marked dead and the new string is appended.  
+ * The index is rebuilt once dead entries outnumber live ones.  Candidates are returned in the order 
+ * the clusters were indexed so ties are broken as they would be without the index.
+ * 
+ * @author slangevin
+ *
+ */
+public class QGramClusterIndex extends AbstractClusterIndex {
+	private final static int DEFAULT_Q = 2;
+	private final static int MIN_REBUILD = 64;
+	private final static double EPSILON = 1e-9;
+	
+	/***
+	 * A growable list of entry numbers
+	 */
+	private static class IntList {
+		int[] values = new int[4];
+		int size = 0;
+		
+		void add(int value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+	}
+	
+	private final int q;
+	
+	// the indexed entries
+	private String[] values = new String[0];
+	private Cluster[] owners = new Cluster[0];
+	private boolean[] dead = new boolean[0];
+	private int size = 0;
+	private int live = 0;
+	
+	private final Map<Long, IntList> postings = new HashMap<Long, IntList>();
+	private final Map<Integer, IntList> lengths = new HashMap<Integer, IntList>();
+	private final Map<Cluster, Integer> entries = new IdentityHashMap<Cluster, Integer>();
+	
+	// per thread shared q-gram counts of each entry
+	private final ThreadLocal<int[]> counts = new ThreadLocal<int[]>();
+	
+	public QGramClusterIndex(String featureName) {
+		this(featureName, DEFAULT_Q);
+	}
+	
+	/***
+	 * Create a q-gram cluster index
+	 * 
+	 * @param featureName the name of the StringFeature
+	 * @param q the length of the q-grams, between 1 and 4
+	 */
+	public QGramClusterIndex(String featureName, int q) {
+		super(featureName);
+		if (q < 1 || q > 4) throw new IllegalArgumentException("q must be between 1 and 4");
+		this.q = q;
+	}
+	
+	public int getQ() {
+		return q;
+	}
+	
+	private String getString(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof StringFeature == false) return null;
+		return ((StringFeature)feature).getValue();
+	}
+	
+	/***
+	 * Return the key of the q-gram of s starting at i
+	 */
+	private long getGram(String s, int i) {
+		long gram = 0;
+		for (int j=i; j < i + q; j++) {
+			gram = (gram << 16) | s.charAt(j);
+		}
+		return gram;
+	}
+	
+	/***
+	 * Return the distinct q-grams of s and the number of times each occurs
+	 */
+	private Map<Long, int[]> getGrams(String s) {
+		Map<Long, int[]> grams = new HashMap<Long, int[]>();
+		for (int i=0; i + q <= s.length(); i++) {
+			Long gram = getGram(s, i);
+			int[] count = grams.get(gram);
+			if (count == null) {
+				grams.put(gram, new int[] { 1 });
+			}
+			else {
+				count[0]++;
+			}
+		}
+		return grams;
+	}
+	
+	private static <K> void addTo(Map<K, IntList> map, K key, int value) {
+		IntList list = map.get(key);
+		if (list == null) {
+			list = new IntList();
+			map.put(key, list);
+		}
+		list.add(value);
+	}
+	
+	private void insert(Cluster cluster, String value) {
+		if (size == values.length) {
+			int capacity = Math.max(16, size * 2);
+			values = Arrays.copyOf(values, capacity);
+			owners = Arrays.copyOf(owners, capacity);
+			dead = Arrays.copyOf(dead, capacity);
+		}
+		int entry = size++;
+		values[entry] = value;
+		owners[entry] = cluster;
+		live++;
+		entries.put(cluster, entry);
+		
+		// each occurrence of a q-gram adds the entry to its postings so repeated q-grams are adjacent
+		for (int i=0; i + q <= value.length(); i++) {
+			addTo(postings, getGram(value, i), entry);
+		}
+		addTo(lengths, value.length(), entry);
+	}
+	
+	private void add(Cluster cluster) {
+		addOrdinal(cluster);
+		
+		String value = getString(cluster);
+		if (value == null) {
+			unindexed.add(cluster);
+			entries.put(cluster, null);
+			return;
+		}
+		insert(cluster, value);
+	}
+
+	@Override
+	protected void clear() {
+		super.clear();
+		values = new String[0];
+		owners = new Cluster[0];
+		dead = new boolean[0];
+		size = 0;
+		live = 0;
+		postings.clear();
+		lengths.clear();
+		entries.clear();
+	}
+
+	@Override
+	public void build(List<Cluster> clusters) {
+		clear();
+		
+		for (Cluster c : clusters) {
+			add(c);
+		}
+	}
+
+	@Override
+	public void update(Cluster cluster) {
+		String value = getString(cluster);
+		
+		if (entries.containsKey(cluster)) {
+			Integer entry = entries.get(cluster);
+			if (entry == null) {
+				if (value == null) return;
+				unindexed.remove(cluster);
+			}
+			else {
+				// nothing to do if the median has not changed
+				if (values[entry].equals(value)) return;
+				
+				dead[entry] = true;
+				live--;
+			}
+		}
+		add(cluster);
+		
+		if (size - live > Math.max(MIN_REBUILD, live)) {
+			build(getClustersInIndexOrder());
+		}
+	}
+
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		String query = getString(inst);
+		if (query == null || radius >= 1) return null;
+		
+		int n = query.length();
+		int minLength = (int)Math.ceil(n * (1 - radius) - EPSILON);
+		int maxLength = (int)Math.floor(n / (1 - radius) + EPSILON);
+		
+		// the number of shared q-grams required of each candidate length
+		int[] required = new int[maxLength - minLength + 1];
+		boolean counting = false;
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed);
+		
+		for (int m = minLength; m <= maxLength; m++) {
+			int longest = Math.max(n, m);
+			int k = (int)Math.floor(radius * longest + EPSILON);
+			required[m - minLength] = longest - q + 1 - k * q;
+			
+			if (required[m - minLength] > 0) {
+				counting = true;
+				continue;
+			}
+			
+			// no q-grams need to be shared so every entry of this length is a candidate
+			IntList list = lengths.get(m);
+			if (list == null) continue;
+			for (int i=0; i < list.size; i++) {
+				int entry = list.values[i];
+				if (!dead[entry]) result.add(owners[entry]);
+			}
+		}
+		
+		if (counting) {
+			int[] shared = counts.get();
+			if (shared == null || shared.length < size) {
+				shared = new int[Math.max(size, 16) * 2];
+				counts.set(shared);
+			}
+			
+			IntList touched = new IntList();
+			for (Map.Entry<Long, int[]> gram : getGrams(query).entrySet()) {
+				IntList posting = postings.get(gram.getKey());
+				if (posting == null) continue;
+				
+				int occurrences = gram.getValue()[0];
+				int i = 0;
+				while (i < posting.size) {
+					int entry = posting.values[i];
+					int run = 1;
+					while (i + run < posting.size && posting.values[i + run] == entry) run++;
+					i += run;
+					
+					int m = values[entry].length();
+					if (dead[entry] || m < minLength || m > maxLength || required[m - minLength] <= 0) continue;
+					
+					if (shared[entry] == 0) touched.add(entry);
+					shared[entry] += Math.min(occurrences, run);
+				}
+			}
+			
+			for (int i=0; i < touched.size; i++) {
+				int entry = touched.values[i];
+				if (shared[entry] >= required[values[entry].length() - minLength]) result.add(owners[entry]);
+				shared[entry] = 0;
+			}
+		}
+		
+		sortInIndexOrder(result);
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		// nearest queries in normalized edit distance are not supported
+		return null;
+	}
+}
@@ -24,8 +24,14 @@
  */
 package com.oculusinfo.ml.feature.temporal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.util.Date;
 
+import org.codehaus.jackson.annotate.JsonIgnore;
+
 import com.oculusinfo.ml.feature.Feature;
 
 /***
@@ -33,17 +39,31 @@ import com.oculusinfo.ml.feature.Feature;
  * 
  * Useful for representing events
  * 
+ * The start and end are held as primitive milliseconds since the epoch so distance calculations 
+ * do not dereference or allocate Date objects.  The Date accessors return copies and are kept for 
+ * compatibility, as is the serialized form.
+ * 
  * @author slangevin
  *
  */
 public class TemporalFeature extends Feature {
 	private static final long serialVersionUID = 679871263379162267L;
-	private Date start;
-	private Date end;
+	
+	// the serialized form holds the start and end as Dates
+	private static final ObjectStreamField[] serialPersistentFields = { 
+		new ObjectStreamField("start", Date.class), 
+		new ObjectStreamField("end", Date.class) 
+	};
+	
+	// marks a start or end that has not been set
+	private static final long UNSET = Long.MIN_VALUE;
+	
+	private transient long start = UNSET;
+	private transient long end = UNSET;
 	
 	@Override
 	public String toString() {
-		return (this.getName() + ":[" + start + "; " + end + "]");
+		return (this.getName() + ":[" + getStart() + "; " + getEnd() + "]");
 	}
 	
 	public TemporalFeature() {
@@ -55,23 +75,81 @@ public class TemporalFeature extends Feature {
 	}
 	
 	public void setValue(Date start, Date end) {
-		this.start 	= start;
-		this.end 	= end;
+		setStart(start);
+		setEnd(end);
+	}
+	
+	/***
+	 * Set the time period in milliseconds since the epoch
+	 * 
+	 * @param start
+	 * @param end
+	 */
+	public void setValue(long start, long end) {
+		this.start = start;
+		this.end = end;
 	}
 	
 	public Date getStart() {
-		return start;
+		return (start == UNSET) ? null : new Date(start);
 	}
 	
 	public void setStart(Date start) {
-		this.start = start;
+		this.start = (start == null) ? UNSET : start.getTime();
 	}
 	
 	public Date getEnd() {
-		return end;
+		return (end == UNSET) ? null : new Date(end);
 	}
 	
 	public void setEnd(Date end) {
+		this.end = (end == null) ? UNSET : end.getTime();
+	}
+	
+	/***
+	 * Return the start in milliseconds since the epoch, which is undefined if hasStart is false
+	 */
+	@JsonIgnore
+	public long getStartTime() {
+		return start;
+	}
+	
+	@JsonIgnore
+	public void setStartTime(long start) {
+		this.start = start;
+	}
+	
+	/***
+	 * Return the end in milliseconds since the epoch, which is undefined if hasEnd is false
+	 */
+	@JsonIgnore
+	public long getEndTime() {
+		return end;
+	}
+	
+	@JsonIgnore
+	public void setEndTime(long end) {
 		this.end = end;
 	}
+	
+	public boolean hasStart() {
+		return start != UNSET;
+	}
+	
+	public boolean hasEnd() {
+		return end != UNSET;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("start", getStart());
+		fields.put("end", getEnd());
+		out.writeFields();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		setStart((Date)fields.get("start", null));
+		setEnd((Date)fields.get("end", null));
+	}
 }
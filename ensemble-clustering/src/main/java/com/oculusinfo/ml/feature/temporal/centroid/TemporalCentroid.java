@@ -26,7 +26,6 @@ package com.oculusinfo.ml.feature.temporal.centroid;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 
 import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
@@ -48,8 +47,9 @@ public class TemporalCentroid implements Centroid<TemporalFeature> {
 	    double addedWeight = feature.getWeight();
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		if (!feature.hasStart() || !feature.hasEnd()) throw new IllegalArgumentException("TemporalFeature start and end must be set");
+		start = feature.getStartTime();
+		end = feature.getEndTime();
 
 		// Increase the weight of this feature according to the weight of the added feature
 		weight += addedWeight;
@@ -64,8 +64,9 @@ public class TemporalCentroid implements Centroid<TemporalFeature> {
 	    double removedWeight = feature.getWeight();
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		if (!feature.hasStart() || !feature.hasEnd()) throw new IllegalArgumentException("TemporalFeature start and end must be set");
+		start = feature.getStartTime();
+		end = feature.getEndTime();
 
 		if (0 >= weight) {
 			System.out.println("Attempt to remove from an empty temporal centroid");
@@ -88,8 +89,7 @@ public class TemporalCentroid implements Centroid<TemporalFeature> {
 	public TemporalFeature getCentroid() {
 		// create the centroid temporal feature set
 		TemporalFeature centroid = new TemporalFeature(name);
-		centroid.setValue(new Date((long) Math.round(cstart/weight)),
-		           new Date((long) Math.round(cend/weight))); // compute average start/end
+		centroid.setValue(Math.round(cstart/weight), Math.round(cend/weight)); // compute average start/end
 		centroid.setWeight(weight);
 		
 		return centroid;
@@ -26,7 +26,6 @@ package com.oculusinfo.ml.feature.temporal.centroid;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 
 import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
@@ -46,8 +45,9 @@ public class TemporalMinMaxCentroid implements Centroid<TemporalFeature> {
 	public void add(TemporalFeature feature) {
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		if (!feature.hasStart() || !feature.hasEnd()) throw new IllegalArgumentException("TemporalFeature start and end must be set");
+		start = feature.getStartTime();
+		end = feature.getEndTime();
 		
 		// revise the centroid start and end
 		cstart = (cstart == 0 ? start : Math.min(start, cstart));
@@ -68,7 +68,7 @@ public class TemporalMinMaxCentroid implements Centroid<TemporalFeature> {
 	public TemporalFeature getCentroid() {
 		// create the centroid temporal feature set
 		TemporalFeature centroid = new TemporalFeature(name);
-		centroid.setValue(new Date(cstart), new Date(cend));
+		centroid.setValue(cstart, cend);
 		return centroid;
 	}
 
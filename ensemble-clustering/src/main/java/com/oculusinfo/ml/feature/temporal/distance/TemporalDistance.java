@@ -24,8 +24,6 @@
  */
 package com.oculusinfo.ml.feature.temporal.distance;
 
-import java.util.Date;
-
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
 
@@ -50,32 +48,33 @@ public class TemporalDistance extends DistanceFunction<TemporalFeature> {
 	
 	@Override
 	public double distance(TemporalFeature x, TemporalFeature y) {
-		Date start1 = x.getStart();
-		Date start2 = y.getStart();
-		Date end1 = x.getEnd();
-		Date end2 = y.getEnd();
+		// a range with no start or end can not be compared
+		if (!x.hasStart() || !x.hasEnd() || !y.hasStart() || !y.hasEnd()) return 1;
 		
-		Date s = null, e = null;
+		long start1 = x.getStartTime();
+		long start2 = y.getStartTime();
+		long end1 = x.getEndTime();
+		long end2 = y.getEndTime();
 		
 		// TODO sanity check inputs to make sure: start1 <= end1 and start2 <= end2
 		
 		// check if the date intervals overlap - return 1 if they don't
-		if (start2.after(end1) || start1.after(end2)) return 1;
+		if (start2 > end1 || start1 > end2) return 1;
 		
 		// these are identical time regions
-		if (start1.equals(start2) && end1.equals(end2)) return 0;
+		if (start1 == start2 && end1 == end2) return 0;
 		
 		// calculate the overlapping interval [s,e]
-		s = (start2.after(start1) ? start2 : start1);
-		e = (end2.before(end1) ? end2 : end1);
+		long s = Math.max(start1, start2);
+		long e = Math.min(end1, end2);
 		
 		// normalize distance
 		double normDist = 1 - (2 * durationInMS(s, e) / (durationInMS(start1, end1) + durationInMS(start2, end2)));
 		return normDist;
 	}
 	
-	private double durationInMS(Date start, Date end) {
-		double duration = end.getTime() - start.getTime();
+	private double durationInMS(long start, long end) {
+		double duration = end - start;
 		// handle edge case so single points are not zero
 		return (duration == 0 ? MS_PER_DAY : duration); 
 	}
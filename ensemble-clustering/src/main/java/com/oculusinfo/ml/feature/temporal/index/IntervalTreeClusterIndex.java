@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.temporal.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractTreeClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * An interval tree index over the TemporalFeature centroids of clusters for use with the 
+ * TemporalDistance function.
+ * 
+ * TemporalDistance is 1 for any two date ranges that do not overlap, so for any search radius 
+ * less than 1 only the clusters whose range overlaps the range of the instance can be within radius.  
+ * A tolerance in ms can be given to also return clusters whose range nearly overlaps.
+ * 
+ * The tree is a balanced binary tree over the centroid ranges sorted by start date, where each node 
+ * holds the latest end date of its subtree.  Clusters updated after the tree was built are searched 
+ * exhaustively with their current centroids until the tree is rebuilt.
+ * 
+ * @author slangevin
+ *
+ */
+public class IntervalTreeClusterIndex extends AbstractTreeClusterIndex {
+	private final long tolerance;
+	
+	private long[] starts = new long[0];
+	private long[] ends = new long[0];
+	private long[] maxEnds = new long[0];
+	
+	public IntervalTreeClusterIndex(String featureName) {
+		this(featureName, 0);
+	}
+	
+	/***
+	 * Create an interval tree cluster index
+	 * 
+	 * @param featureName the name of the TemporalFeature
+	 * @param tolerance the largest gap in ms between two ranges that are considered nearly overlapping
+	 */
+	public IntervalTreeClusterIndex(String featureName, long tolerance) {
+		super(featureName);
+		this.tolerance = tolerance;
+	}
+	
+	public long getTolerance() {
+		return tolerance;
+	}
+	
+	private TemporalFeature getTemporal(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof TemporalFeature == false) return null;
+		
+		TemporalFeature temporal = (TemporalFeature)feature;
+		if (!temporal.hasStart() || !temporal.hasEnd()) return null;
+		return temporal;
+	}
+
+	@Override
+	protected boolean isIndexable(Cluster cluster) {
+		return (getTemporal(cluster) != null);
+	}
+
+	@Override
+	protected Cluster[] buildTree(List<Cluster> indexed) {
+		final List<long[]> ranges = new ArrayList<long[]>(indexed.size());
+		for (Cluster c : indexed) {
+			TemporalFeature t = getTemporal(c);
+			ranges.add(new long[] { t.getStartTime(), t.getEndTime() });
+		}
+		
+		int n = indexed.size();
+		Integer[] order = new Integer[n];
+		for (int i=0; i < n; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				long sa = ranges.get(a)[0], sb = ranges.get(b)[0];
+				return (sa < sb) ? -1 : ((sa == sb) ? 0 : 1);
+			}
+		});
+		
+		Cluster[] tree = new Cluster[n];
+		starts = new long[n];
+		ends = new long[n];
+		maxEnds = new long[n];
+		
+		for (int i=0; i < n; i++) {
+			tree[i] = indexed.get(order[i]);
+			starts[i] = ranges.get(order[i])[0];
+			ends[i] = ranges.get(order[i])[1];
+		}
+		computeMaxEnds(0, n);
+		return tree;
+	}
+	
+	/***
+	 * Compute the latest end of each subtree where the node of each range [lo, hi) is at its midpoint
+	 */
+	private long computeMaxEnds(int lo, int hi) {
+		if (lo >= hi) return Long.MIN_VALUE;
+		
+		int mid = (lo + hi) >>> 1;
+		long max = Math.max(ends[mid], Math.max(computeMaxEnds(lo, mid), computeMaxEnds(mid + 1, hi)));
+		maxEnds[mid] = max;
+		return max;
+	}
+
+	private void overlapping(long start, long end, int lo, int hi, List<Cluster> result) {
+		if (lo >= hi) return;
+		
+		int mid = (lo + hi) >>> 1;
+		
+		// no range in this subtree ends after the query starts
+		if (maxEnds[mid] < start) return;
+		
+		overlapping(start, end, lo, mid, result);
+		
+		// ranges to the right of mid start after mid
+		if (starts[mid] > end) return;
+		
+		if (!stale[mid] && ends[mid] >= start) result.add(clusters[mid]);
+		overlapping(start, end, mid + 1, hi, result);
+	}
+	
+	private List<Cluster> getOverlapping(TemporalFeature t) {
+		long start = t.getStartTime() - tolerance;
+		long end = t.getEndTime() + tolerance;
+		
+		List<Cluster> result = new ArrayList<Cluster>(unindexed);
+		overlapping(start, end, 0, clusters.length, result);
+		
+		for (Cluster c : updated) {
+			TemporalFeature u = getTemporal(c);
+			if (u == null || (u.getStartTime() <= end && u.getEndTime() >= start)) result.add(c);
+		}
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		TemporalFeature t = getTemporal(inst);
+		
+		// any two ranges are within a radius of 1
+		if (t == null || radius >= 1) return null;
+		
+		return getOverlapping(t);
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		TemporalFeature t = getTemporal(inst);
+		if (t == null) return null;
+		
+		// when nothing overlaps every cluster is at a distance of 1
+		List<Cluster> result = getOverlapping(t);
+		return (result.size() > unindexed.size()) ? result : null;
+	}
+}
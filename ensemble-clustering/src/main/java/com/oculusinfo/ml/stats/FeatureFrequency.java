@@ -33,6 +33,9 @@ public class FeatureFrequency implements Serializable {
 	public int frequency = 0;
 	public Feature feature;
 	
+	// position of this frequency in the top N heap of the table that owns it
+	transient int heapIndex = -1;
+	
 	public FeatureFrequency() { }
 	
 	public FeatureFrequency(Feature feature) {
@@ -25,7 +25,9 @@
 package com.oculusinfo.ml.stats;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -39,6 +41,14 @@ public class FeatureFrequencyTable implements Serializable {
 	private static final long serialVersionUID = 2702669296496944069L;
 	private Map<String, FeatureFrequency> table = new HashMap<String, FeatureFrequency>();
 	
+	// incremented on every change so cached values derived from the table can be validated
+	private transient int modCount = 0;
+	
+	// max heap of the table entries by frequency, built on the first top N query and maintained 
+	// by every change made through the table methods
+	private transient FeatureFrequency[] heap = null;
+	private transient int heapSize = 0;
+	
 	public FeatureFrequencyTable() { }
 	
 	public boolean containsFeature(Feature feature) {
@@ -46,17 +56,25 @@ public class FeatureFrequencyTable implements Serializable {
 	}
 	
 	public FeatureFrequency remove(Feature feature) {
-		return table.remove(feature.getId());
+		modCount++;
+		FeatureFrequency removed = table.remove(feature.getId());
+		heapRemove(removed);
+		return removed;
 	}
 	
 	public FeatureFrequency remove(FeatureFrequency freq) {
-		return table.remove(freq.feature.getId());
+		modCount++;
+		FeatureFrequency removed = table.remove(freq.feature.getId());
+		heapRemove(removed);
+		return removed;
 	}
 	
 	public FeatureFrequency add(FeatureFrequency freq) {
 		if (containsFeature(freq.feature) == false) {
+			modCount++;
 			FeatureFrequency f = new FeatureFrequency(freq.feature);
 			f.frequency = freq.frequency;
+			heapInsert(f);
 			return table.put(freq.feature.getId(), f);
 		}
 		return incrementBy(freq.feature, freq.frequency);
@@ -64,7 +82,10 @@ public class FeatureFrequencyTable implements Serializable {
 	
 	public FeatureFrequency add(Feature feature) {
 		if (containsFeature(feature) == false) {
-			return table.put(feature.getId(), new FeatureFrequency(feature));
+			modCount++;
+			FeatureFrequency f = new FeatureFrequency(feature);
+			heapInsert(f);
+			return table.put(feature.getId(), f);
 		}
 		return increment(feature);
 	}
@@ -74,7 +95,10 @@ public class FeatureFrequencyTable implements Serializable {
 	}
 	
 	public void clear() {
+		modCount++;
 		table.clear();
+		heap = null;
+		heapSize = 0;
 	}
 	
 	@JsonIgnore
@@ -85,8 +109,10 @@ public class FeatureFrequencyTable implements Serializable {
 	public FeatureFrequency incrementBy(Feature feature, int increment) {
 		FeatureFrequency freq = null;
 		if (containsFeature(feature)) {
+			modCount++;
 			freq = get(feature);
 			freq.frequency += increment;
+			heapUpdate(freq);
 		}
 		return freq;
 	}
@@ -98,9 +124,11 @@ public class FeatureFrequencyTable implements Serializable {
 	public FeatureFrequency decrementBy(Feature feature, int decrement) {
 		FeatureFrequency freq = null;
 		if (containsFeature(feature)) {
+			modCount++;
 			freq = get(feature);
 			freq.frequency-= decrement;
 			if (freq.frequency < 0) freq.frequency = 0;
+			heapUpdate(freq);
 		}
 		return freq;
 	}
@@ -109,28 +137,143 @@ public class FeatureFrequencyTable implements Serializable {
 		return decrementBy(feature, 1);
 	}
 	
+	/***
+	 * Return a read only view of the table.  Entries must be added and removed through the table 
+	 * methods so the top N heap stays consistent.
+	 * 
+	 * @return the features by id
+	 */
 	public Map<String, FeatureFrequency> getTable() {
-		return table;
+		return Collections.unmodifiableMap(table);
 	}
 	
 	public void setTable(Map<String, FeatureFrequency> table) {
+		modCount++;
 		this.table = table;
+		heap = null;
+		heapSize = 0;
 	}
 	
+	/***
+	 * Return the number of changes made to the table through its methods
+	 * 
+	 * @return the modification count
+	 */
+	@JsonIgnore
+	public int getModCount() {
+		return modCount;
+	}
+	
+	/***
+	 * Return the n features with the highest frequency in order of decreasing frequency.
+	 * 
+	 * The first call builds a heap of the table entries in linear time, which is then updated 
+	 * in O(log N) by each change made through the table methods, so later calls cost O(n log n) 
+	 * regardless of the size of the table.  Frequencies changed directly on the entries returned 
+	 * by get or getAll are not seen by the heap.
+	 * 
+	 * @param n the number of features to return
+	 * @return the top n features
+	 */
 	public Collection<FeatureFrequency> getTopN(int n) {
 		Collection<FeatureFrequency> topN = new LinkedList<FeatureFrequency>();
-		PriorityQueue<FeatureFrequency> freq = new PriorityQueue<FeatureFrequency>(11, new FeatureFreqComparator());
 		
-		// sort features by decreasing frequency
+		if (heap == null) buildHeap();
+		if (n <= 0 || heapSize == 0) return topN;
+		
+		// walk the heap from the root, expanding the children of each entry taken
+		PriorityQueue<FeatureFrequency> frontier = new PriorityQueue<FeatureFrequency>(2 * n + 1, new FeatureFreqComparator());
+		frontier.add(heap[0]);
+		while (topN.size() < n && !frontier.isEmpty()) {
+			FeatureFrequency f = frontier.poll();
+			topN.add(f);
+			
+			int child = 2 * f.heapIndex + 1;
+			if (child < heapSize) frontier.add(heap[child]);
+			if (child + 1 < heapSize) frontier.add(heap[child + 1]);
+		}
+		return topN;
+	}
+	
+	private void buildHeap() {
+		heapSize = 0;
+		heap = new FeatureFrequency[Math.max(16, table.size())];
 		for (FeatureFrequency f : table.values()) {
-			freq.add(f);
+			f.heapIndex = heapSize;
+			heap[heapSize++] = f;
+		}
+		for (int i = heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(i);
 		}
+	}
+	
+	/***
+	 * Return true if the entry is at its recorded position of the heap, otherwise discard the heap so 
+	 * it is rebuilt on the next query (e.g. the entry is shared with another table)
+	 */
+	private boolean inHeap(FeatureFrequency f) {
+		if (heap == null) return false;
+		if (f.heapIndex >= 0 && f.heapIndex < heapSize && heap[f.heapIndex] == f) return true;
+		heap = null;
+		heapSize = 0;
+		return false;
+	}
+	
+	private void heapInsert(FeatureFrequency f) {
+		if (heap == null) return;
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * heap.length);
+		}
+		f.heapIndex = heapSize;
+		heap[heapSize++] = f;
+		siftUp(f.heapIndex);
+	}
+	
+	private void heapRemove(FeatureFrequency f) {
+		if (f == null || !inHeap(f)) return;
 		
-		// return the first n elements in PQ
-		for (int i=0; i < n; i++) {
-			if (freq.isEmpty()) break;
-			topN.add(freq.poll());
+		int i = f.heapIndex;
+		FeatureFrequency last = heap[--heapSize];
+		heap[heapSize] = null;
+		f.heapIndex = -1;
+		if (i < heapSize) {
+			heap[i] = last;
+			last.heapIndex = i;
+			heapUpdate(last);
 		}
-		return topN;
+	}
+	
+	private void heapUpdate(FeatureFrequency f) {
+		if (!inHeap(f)) return;
+		siftDown(siftUp(f.heapIndex));
+	}
+	
+	private int siftUp(int i) {
+		FeatureFrequency f = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (heap[parent].frequency >= f.frequency) break;
+			heap[i] = heap[parent];
+			heap[i].heapIndex = i;
+			i = parent;
+		}
+		heap[i] = f;
+		f.heapIndex = i;
+		return i;
+	}
+	
+	private void siftDown(int i) {
+		FeatureFrequency f = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) break;
+			if (child + 1 < heapSize && heap[child + 1].frequency > heap[child].frequency) child++;
+			if (heap[child].frequency <= f.frequency) break;
+			heap[i] = heap[child];
+			heap[i].heapIndex = i;
+			i = child;
+		}
+		heap[i] = f;
+		f.heapIndex = i;
 	}
 }
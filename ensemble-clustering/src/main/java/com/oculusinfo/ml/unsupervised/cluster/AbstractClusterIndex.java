@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Abstract base class for cluster indexes over the centroids of one feature type.
+ * 
+ * Keeps the name of the indexed feature and the clusters whose centroid does not have the 
+ * feature, which are returned as candidates for every query.  Subclasses that number the clusters 
+ * as they are indexed can return candidates in that order so ties are broken as they would be 
+ * without the index.
+ * 
+ * @author slangevin
+ *
+ */
+public abstract class AbstractClusterIndex implements ClusterIndex {
+	protected final String featureName;
+	protected final List<Cluster> unindexed = new ArrayList<Cluster>();
+	
+	private final Map<Cluster, Integer> ordinals = new IdentityHashMap<Cluster, Integer>();
+	
+	private final Comparator<Cluster> indexOrder = new Comparator<Cluster>() {
+		@Override
+		public int compare(Cluster a, Cluster b) {
+			return ordinals.get(a).compareTo(ordinals.get(b));
+		}
+	};
+	
+	public AbstractClusterIndex(String featureName) {
+		this.featureName = featureName;
+	}
+	
+	@Override
+	public String getFeatureName() {
+		return featureName;
+	}
+	
+	/***
+	 * Clear the bookkeeping of the base class before the index is rebuilt
+	 */
+	protected void clear() {
+		unindexed.clear();
+		ordinals.clear();
+	}
+	
+	/***
+	 * Number the cluster in the order it was first indexed
+	 */
+	protected void addOrdinal(Cluster cluster) {
+		if (!ordinals.containsKey(cluster)) ordinals.put(cluster, ordinals.size());
+	}
+	
+	/***
+	 * Sort clusters into the order they were first indexed
+	 */
+	protected void sortInIndexOrder(List<Cluster> clusters) {
+		Collections.sort(clusters, indexOrder);
+	}
+	
+	/***
+	 * Return every numbered cluster in the order they were first indexed
+	 */
+	protected List<Cluster> getClustersInIndexOrder() {
+		List<Cluster> all = new ArrayList<Cluster>(ordinals.keySet());
+		sortInIndexOrder(all);
+		return all;
+	}
+}
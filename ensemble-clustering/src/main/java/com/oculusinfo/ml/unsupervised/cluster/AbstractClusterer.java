@@ -24,14 +24,18 @@
  */
 package com.oculusinfo.ml.unsupervised.cluster;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -40,7 +44,6 @@ import org.slf4j.LoggerFactory;
 
 import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
-import com.oculusinfo.ml.feature.Feature;
 
 /***
  * 
@@ -55,18 +58,21 @@ import com.oculusinfo.ml.feature.Feature;
  */
 public abstract class AbstractClusterer extends BaseClusterer {
 	protected final static int DEFAULT_THREAD_POOL = Runtime.getRuntime().availableProcessors();
+	protected final static int PARTITIONS_PER_THREAD = 4;
 
 	protected final boolean penalizeMissingFeatures;
 	protected final boolean firstCandidate;
 	
 	protected double maxDistance = 1.0;
+	protected ClusterIndex clusterIndex = null;
+	protected int threadCount = DEFAULT_THREAD_POOL;
 	
 	protected static Logger log = LoggerFactory.getLogger("com.oculusinfo");
 	protected ExecutorService exec; // = Executors.newFixedThreadPool(DEFAULT_THREAD_POOL); //.newSingleThreadExecutor();;
 	
 	@Override
 	public void init() {
-		exec = Executors.newFixedThreadPool(DEFAULT_THREAD_POOL, new ThreadFactory() {
+		exec = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
 			
 			@Override
 			public Thread newThread(Runnable r) {
@@ -81,6 +87,20 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		});
 	}
 	
+	/***
+	 * Set the number of threads used by the clusterer.  Must be called before init.
+	 * 
+	 * @param threadCount the number of threads in the clusterer thread pool
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) throw new IllegalArgumentException("threadCount must be at least 1");
+		this.threadCount = threadCount;
+	}
+	
+	public int getThreadCount() {
+		return threadCount;
+	}
+	
 	@Override
 	public void terminate() {
 		if (exec == null) return;
@@ -131,6 +151,63 @@ public abstract class AbstractClusterer extends BaseClusterer {
 	 */
 	protected abstract boolean isCandidate(Instance inst, Cluster candidate, double score, Cluster best, double bestScore);
 	
+	/***
+	 * Return the distance above which a cluster can never be a candidate for an instance.
+	 * 
+	 * The nearest cluster searches pass this as the cutoff to the bounded distance calculation.
+	 * Sub-classes with a distance threshold should override this method.
+	 * 
+	 * @return the distance cutoff
+	 */
+	protected double getDistanceCutoff() {
+		return Double.MAX_VALUE;
+	}
+	
+	/***
+	 * Return the clusters that inst should be compared against when clustering online.
+	 * 
+	 * Sub-classes can override this method to prune the clusters searched, by default all the clusters are returned.
+	 * 
+	 * @param inst the instance being clustered
+	 * @param clusters all the clusters
+	 * @return the candidate clusters
+	 */
+	protected List<Cluster> getCandidateClusters(Instance inst, List<Cluster> clusters) {
+		if (clusterIndex == null) return clusters;
+		
+		// find the weight of the indexed feature type
+		DistancePlan plan = distancePlan;
+		double weight = 0;
+		for (int i=0; i < plan.size(); i++) {
+			if (plan.getFeatureName(i).equals(clusterIndex.getFeatureName())) weight = plan.getWeight(i);
+		}
+		if (weight == 0) return clusters;
+		
+		List<Cluster> candidates = null;
+		double cutoff = getDistanceCutoff();
+		
+		if (cutoff < Double.MAX_VALUE) {
+			// the other feature types only add to the distance so the indexed feature must be within cutoff alone
+			candidates = clusterIndex.getCandidates(inst, cutoff / weight);
+		}
+		else if (plan.size() == 1) {
+			candidates = clusterIndex.getNearestCandidates(inst);
+		}
+		return (candidates != null) ? candidates : clusters;
+	}
+	
+	/***
+	 * Called when clustering online after inst has been added to cluster, which may be a new cluster.
+	 * 
+	 * By default the cluster is updated in the cluster index.
+	 * 
+	 * @param inst the instance being clustered
+	 * @param cluster the cluster inst was added to
+	 */
+	protected void clusterAssigned(Instance inst, Cluster cluster) {
+		if (clusterIndex != null) clusterIndex.update(cluster);
+	}
+	
 	public AbstractClusterer() {
 		this(false, false, true);
 	}
@@ -154,6 +231,23 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		log = logger;
 	}
 	
+	/***
+	 * Set an index over cluster centroids used to restrict the clusters searched for each instance.
+	 * 
+	 * When the clusterer has a distance threshold only the clusters the index finds within the threshold are 
+	 * searched.  Otherwise, if the indexed feature type is the only registered feature type, the index is used 
+	 * to find the nearest cluster.
+	 * 
+	 * @param clusterIndex the cluster index or null to search all clusters
+	 */
+	public void setClusterIndex(ClusterIndex clusterIndex) {
+		this.clusterIndex = clusterIndex;
+	}
+	
+	public ClusterIndex getClusterIndex() {
+		return clusterIndex;
+	}
+	
 	/***
 	 * Return the executor service the clusterer is using for parallelization.
 	 * 
@@ -207,10 +301,11 @@ public abstract class AbstractClusterer extends BaseClusterer {
 				@Override
 				public DistanceResult call() {
 					double bestDist = Double.MAX_VALUE;
+					double cutoff = getDistanceCutoff();
 					Instance bestMatch = null;
 					
 					for (Instance c : clusters) {
-						double d = distance(inst, c); 
+						double d = distance(inst, c, Math.min(bestDist, cutoff)); 
 						if (d < bestDist) {
 							bestDist = d;
 							bestMatch = c;
@@ -238,15 +333,189 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		return new DistanceResult(inst, bestCluster, bestScore);
 	}
 	
+	/***
+	 * Find the nearest cluster for each instance in a partition of the data set.
+	 * 
+	 * The clusters are an immutable snapshot so partitions can be searched concurrently.
+	 * The nearest cluster and its distance are written into the shared result arrays
+	 * at the index of the instance; each partition writes to a disjoint index range.
+	 */
+	private class AssignmentTask implements Callable<Void> {
+		private final Instance[] instances;
+		private final List<Cluster> snapshot;
+		private final Cluster[] nearest;
+		private final double[] scores;
+		private final int sIdx;
+		private final int eIdx;
+		
+		public AssignmentTask(Instance[] instances, List<Cluster> snapshot, Cluster[] nearest, double[] scores, int sIdx, int eIdx) {
+			this.instances = instances;
+			this.snapshot = snapshot;
+			this.nearest = nearest;
+			this.scores = scores;
+			this.sIdx = sIdx;
+			this.eIdx = eIdx;
+		}
+		
+		@Override
+		public Void call() {
+			double cutoff = getDistanceCutoff();
+			
+			for (int i=sIdx; i < eIdx; i++) {
+				Instance inst = instances[i];
+				double bestDist = Double.MAX_VALUE;
+				Cluster bestMatch = null;
+				
+				for (Cluster c : getCandidateClusters(inst, snapshot)) {
+					double d = distance(inst, c, Math.min(bestDist, cutoff));
+					if (d < bestDist) {
+						bestDist = d;
+						bestMatch = c;
+					}
+				}
+				nearest[i] = bestMatch;
+				scores[i] = bestDist;
+			}
+			return null;
+		}
+	}
+	
+	/***
+	 * Find the nearest cluster for each instance by partitioning the instances across the executor service.
+	 * 
+	 * The clusters must not be modified until the method returns.  The nearest cluster and its distance 
+	 * for instances[i] are written to nearest[i] and scores[i].
+	 * 
+	 * @param instances the instances to search for
+	 * @param snapshot the clusters to search
+	 * @param nearest the resulting nearest cluster of each instance
+	 * @param scores the resulting distance of each instance to its nearest cluster
+	 */
+	protected void assignNearest(Instance[] instances, Cluster[] snapshot, Cluster[] nearest, double[] scores) {
+		if (snapshot.length == 0 || instances.length == 0) return;
+		
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		List<Cluster> clusters = Arrays.asList(snapshot);
+		if (clusterIndex != null) clusterIndex.build(clusters);
+		
+		int numPartitions = Math.min(instances.length, threadCount * PARTITIONS_PER_THREAD);
+		int partitionSize = (instances.length + numPartitions - 1) / numPartitions;
+		
+		List<AssignmentTask> tasks = new ArrayList<AssignmentTask>(numPartitions);
+		for (int sIdx = 0; sIdx < instances.length; sIdx += partitionSize) {
+			int eIdx = Math.min(sIdx + partitionSize, instances.length);
+			tasks.add(new AssignmentTask(instances, clusters, nearest, scores, sIdx, eIdx));
+		}
+		
+		try {
+			List<Future<Void>> results = getExecutor().invokeAll(tasks);
+			for (int i=0; i < results.size(); i++) {
+				try {
+					results.get(i).get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/***
+	 * Data parallel method to cluster a data set when centroids are not updated online.
+	 * 
+	 * Since cluster centroids do not change during a pass when onlineUpdate is false, the data set 
+	 * is partitioned across the executor service and the nearest cluster search for each partition 
+	 * is run against an immutable snapshot of the clusters. The assignments are then merged in 
+	 * data set order.  Instances that are not a candidate for any existing cluster are compared
+	 * against the clusters created during the merge so the result is the same as clustering
+	 * each instance in turn.
+	 * 
+	 * @param ds the data set to cluster
+	 * @param clusters is a collection of clusters to modify
+	 * @return a collection of modified clusters
+	 */
+	protected ClusterResult doBatchCluster(DataSet ds, List<Cluster> clusters) {
+		double start = System.currentTimeMillis();
+		
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		final Instance[] instances = new Instance[ds.size()];
+		int idx = 0;
+		for (Instance inst : ds) {
+			instances[idx++] = inst;
+		}
+		final Cluster[] snapshot = clusters.toArray(new Cluster[clusters.size()]);
+		final Cluster[] nearest = new Cluster[instances.length];
+		final double[] scores = new double[instances.length];
+		
+		// search for the nearest cluster of each partition of instances in parallel
+		assignNearest(instances, snapshot, nearest, scores);
+		
+		// merge the assignments in data set order
+		LinkedHashSet<Cluster> modified = new LinkedHashSet<Cluster>();
+		List<Cluster> created = new LinkedList<Cluster>();
+		double cutoff = getDistanceCutoff();
+		
+		for (int i=0; i < instances.length; i++) {
+			Instance inst = instances[i];
+			Cluster bestCluster = null;
+			double bestScore = Double.MAX_VALUE;
+			
+			if (nearest[i] != null && isCandidate(inst, nearest[i], scores[i], null, Double.MAX_VALUE)) {
+				bestCluster = nearest[i];
+				bestScore = scores[i];
+			}
+			
+			// clusters created earlier in this pass are not in the snapshot
+			for (Cluster c : created) {
+				double d = distance(inst, c, Math.min(bestScore, cutoff));
+				if (isCandidate(inst, c, d, bestCluster, bestScore)) {
+					bestScore = d;
+					bestCluster = c;
+				}
+			}
+			
+			if (bestCluster == null) {	// no candidate cluster was found - create new one
+				bestCluster = createCluster();
+				bestCluster.add(inst);
+				bestCluster.updateCentroid();
+				clusters.add(bestCluster);
+				created.add(bestCluster);
+			}
+			else {
+				bestCluster.add(inst);
+			}
+			modified.add(bestCluster);
+		}
+		
+		// centroids were not updated online so update them now
+		for (Cluster c : modified) {
+			c.updateCentroid();
+		}
+		
+		double clusterTime = System.currentTimeMillis() - start;
+		log.debug("Clustering time (s): {}", clusterTime / 1000);
+		
+		return new InMemoryClusterResult(new LinkedList<Cluster>(modified));
+	}
+	
 	/***
 	 * Protected method to initiate clustering dataset.  The public methods
 	 * doCluster() and doIncrementalCluster() invoke this method.
 	 * 
+	 * When centroids are not updated online the data parallel doBatchCluster() is used.
+	 * 
 	 * @param ds the data set to cluster
 	 * @param clusters is a collection of clusters to modify
 	 * @return a collection of modified clusters
 	 */
 	protected ClusterResult doCluster(DataSet ds, List<Cluster> clusters) {
+		if (!onlineUpdate) return doBatchCluster(ds, clusters);
+		
 		double start = System.currentTimeMillis();
 		
 		// if the clusterer hasn't been initially manually then init it now
@@ -254,9 +523,11 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		
 		LinkedHashSet<Cluster> modified = new LinkedHashSet<Cluster>();
 		
+		if (clusterIndex != null) clusterIndex.build(clusters);
+		
 		for (Instance inst : ds) {
 			// Process in batches of blocks of 100 clusters
-			List<List<? extends Instance>> blocks = createBlocks(clusters, 100);
+			List<List<? extends Instance>> blocks = createBlocks(getCandidateClusters(inst, clusters), 100);
 			
 //			double bestStart = System.currentTimeMillis();
 			Cluster bestCluster = bestCluster(inst, blocks).c;
@@ -272,6 +543,7 @@ public abstract class AbstractClusterer extends BaseClusterer {
 			else {
 				bestCluster.add(inst);
 			}
+			clusterAssigned(inst, bestCluster);
 			modified.add(bestCluster);
 		}
 		
@@ -288,29 +560,12 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		return new InMemoryClusterResult(new LinkedList<Cluster>(modified));
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public double distance(Instance inst1, Instance inst2) {
 		double totalDist = 0; 
 
 		try {
-			for (FeatureTypeDefinition typedef : this.getTypeDefs()) {
-				if (typedef.distFunc.getWeight() < 0.00001) continue;  // skip if weight is near zero
-				
-				Feature f1 = inst1.getFeature(typedef.featureName);
-				Feature f2 = inst2.getFeature(typedef.featureName);
-				
-				double d = 0;
-				
-				if (f1 == null || f2 == null) {
-					d = penalizeMissingFeatures ? typedef.distFunc.getWeight() : 0;  
-				}
-				else {
-					d = typedef.distFunc.distance(f1, f2) * typedef.distFunc.getWeight();
-				}
-				
-				totalDist += d;
-			}
+			totalDist = distancePlan.distance(inst1, inst2, penalizeMissingFeatures);
 		}
 		catch (Exception e) {
 			log.error("Error calculating distance between:\n---\n" + inst1.toString() + "---\n" + inst2.toString() + "---\nException:", e);
@@ -318,4 +573,17 @@ public abstract class AbstractClusterer extends BaseClusterer {
 		
 		return totalDist;
 	}
+	
+	/***
+	 * Calculate the distance of the two instances, abandoning the calculation once it exceeds cutoff.
+	 * 
+	 * @param inst1
+	 * @param inst2
+	 * @param cutoff the largest distance the caller is interested in
+	 * @return the distance between inst1 and inst2 if less than or equal to cutoff, otherwise a value greater than cutoff
+	 * @throws RuntimeException if a distance function fails, rather than reporting a distance of 0 that would always pass the cutoff
+	 */
+	public double distance(Instance inst1, Instance inst2, double cutoff) {
+		return distancePlan.distance(inst1, inst2, penalizeMissingFeatures, cutoff);
+	}
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/***
+ * Abstract base class for cluster indexes over a tree that is built once from the clusters 
+ * and not modified in place.
+ * 
+ * Clusters updated after the tree was built are kept in a list that subclasses search exhaustively 
+ * with their current centroids, and their tree entries are marked stale so queries skip them.  The 
+ * tree is rebuilt once this list grows past a fraction of the indexed clusters.
+ * 
+ * Subclasses build the tree over the clusters in the order returned by buildTree, so tree entry i
+ * is clusters[i] and is stale when stale[i] is set.
+ * 
+ * @author slangevin
+ *
+ */
+public abstract class AbstractTreeClusterIndex extends AbstractClusterIndex {
+	private final static int MIN_REBUILD = 64;
+	
+	protected Cluster[] clusters = new Cluster[0];
+	protected boolean[] stale = new boolean[0];
+	protected final List<Cluster> updated = new ArrayList<Cluster>();
+	
+	private final Map<Cluster, Integer> positions = new IdentityHashMap<Cluster, Integer>();
+	private final Set<Cluster> listed = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+	
+	public AbstractTreeClusterIndex(String featureName) {
+		super(featureName);
+	}
+	
+	/***
+	 * Return true if the centroid of the cluster has a value of the indexed feature
+	 */
+	protected abstract boolean isIndexable(Cluster cluster);
+	
+	/***
+	 * Build the tree over the centroids of the indexable clusters
+	 * 
+	 * @param indexed the clusters to build the tree over
+	 * @return the clusters in the order of their tree entries
+	 */
+	protected abstract Cluster[] buildTree(List<Cluster> indexed);
+	
+	@Override
+	protected void clear() {
+		super.clear();
+		positions.clear();
+		updated.clear();
+		listed.clear();
+	}
+
+	@Override
+	public void build(List<Cluster> all) {
+		List<Cluster> indexed = new ArrayList<Cluster>(all.size());
+		
+		clear();
+		
+		for (Cluster c : all) {
+			if (isIndexable(c)) {
+				indexed.add(c);
+			}
+			else {
+				unindexed.add(c);
+				listed.add(c);
+			}
+		}
+		
+		clusters = buildTree(indexed);
+		stale = new boolean[clusters.length];
+		for (int i=0; i < clusters.length; i++) {
+			positions.put(clusters[i], i);
+		}
+	}
+
+	@Override
+	public void update(Cluster cluster) {
+		// clusters in the updated or unindexed lists are searched with their current centroids
+		if (listed.contains(cluster)) return;
+		
+		if (!isIndexable(cluster)) {
+			unindexed.add(cluster);
+			listed.add(cluster);
+			return;
+		}
+		
+		Integer pos = positions.get(cluster);
+		if (pos != null) stale[pos] = true;
+		updated.add(cluster);
+		listed.add(cluster);
+		
+		// rebuild once the exhaustively searched list is too large
+		if (updated.size() > Math.max(MIN_REBUILD, clusters.length / 4)) {
+			List<Cluster> all = new ArrayList<Cluster>(clusters.length + updated.size() + unindexed.size());
+			for (int i=0; i < clusters.length; i++) {
+				if (!stale[i]) all.add(clusters[i]);
+			}
+			all.addAll(updated);
+			all.addAll(unindexed);
+			build(all);
+		}
+	}
+}
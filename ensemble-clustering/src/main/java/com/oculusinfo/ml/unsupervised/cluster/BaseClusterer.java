@@ -25,17 +25,20 @@
 package com.oculusinfo.ml.unsupervised.cluster;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.FeatureSchema;
 
 public abstract class BaseClusterer implements Clusterer {
 
 	protected ClusterFactory clusterFactory;
 	protected final boolean onlineUpdate;
-	protected final Map<String, FeatureTypeDefinition> typeDefs = new HashMap<String, FeatureTypeDefinition>();
+	protected final Map<String, FeatureTypeDefinition> typeDefs = new LinkedHashMap<String, FeatureTypeDefinition>();
+	protected volatile FeatureSchema featureSchema = new FeatureSchema(typeDefs.keySet());
+	protected volatile DistancePlan distancePlan = new DistancePlan(typeDefs.values(), featureSchema);
 	
 	public BaseClusterer(boolean onlineUpdate) {
 		this.onlineUpdate = onlineUpdate;
@@ -47,6 +50,12 @@ public abstract class BaseClusterer implements Clusterer {
 	 */
 	public void clearFeatureTypes() {
 		typeDefs.clear();
+		compileFeatureTypes();
+	}
+	
+	private void compileFeatureTypes() {
+		featureSchema = new FeatureSchema(typeDefs.keySet());
+		distancePlan = new DistancePlan(typeDefs.values(), featureSchema);
 	}
 	
 	/***
@@ -59,6 +68,7 @@ public abstract class BaseClusterer implements Clusterer {
 	@SuppressWarnings("rawtypes")
 	public void registerFeatureType(String name, Class<? extends Centroid> centroidClass, DistanceFunction distFunc) {
 		typeDefs.put(name, new FeatureTypeDefinition(name, centroidClass, distFunc));
+		compileFeatureTypes();
 	}
 	
 	/***
@@ -100,6 +110,29 @@ public abstract class BaseClusterer implements Clusterer {
 		return typeDefs.values();
 	}
 	
+	/***
+	 * Method to return the feature schema built from the feature types registered with this clusterer.
+	 * 
+	 * Instances created with this schema store the registered features by slot which the distance plan
+	 * uses to avoid feature name lookups.  The schema is rebuilt whenever the registered feature types change.
+	 * 
+	 * @return the feature schema
+	 */
+	public FeatureSchema getFeatureSchema() {
+		return featureSchema;
+	}
+	
+	/***
+	 * Method to return the distance plan compiled from the feature types registered with this clusterer.
+	 * 
+	 * The plan is recompiled whenever the registered feature types change.
+	 * 
+	 * @return the distance plan
+	 */
+	public DistancePlan getDistancePlan() {
+		return distancePlan;
+	}
+	
 	/***
 	 * Public method for creating a new cluster instance. The new cluster is associated with
 	 * the centroids for each feature.
@@ -107,6 +140,6 @@ public abstract class BaseClusterer implements Clusterer {
 	 * @return the new cluster instance
 	 */
 	public Cluster createCluster() {
-		return (new ClusterFactory(this.typeDefs, onlineUpdate)).create();
+		return (new ClusterFactory(this.typeDefs, featureSchema, onlineUpdate)).create();
 	}
 }
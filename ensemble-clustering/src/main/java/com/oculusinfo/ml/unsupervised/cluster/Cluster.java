@@ -36,6 +36,7 @@ import org.codehaus.jackson.annotate.JsonIgnore;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.FeatureSchema;
 
 /***
  * A class that represents a cluster.  
@@ -59,9 +60,13 @@ public class Cluster extends Instance {
 		super();
 	}
 	
-	@SuppressWarnings("rawtypes")
 	public Cluster(String id, Collection<FeatureTypeDefinition> types, boolean onlineUpdate) {
-		super(id);
+		this(id, types, null, onlineUpdate);
+	}
+	
+	@SuppressWarnings("rawtypes")
+	public Cluster(String id, Collection<FeatureTypeDefinition> types, FeatureSchema schema, boolean onlineUpdate) {
+		super(id, schema);
 		
 		for (FeatureTypeDefinition def : types) {
 			try {
@@ -28,19 +28,27 @@ import java.io.Serializable;
 import java.util.Map;
 import java.util.UUID;
 
+import com.oculusinfo.ml.feature.FeatureSchema;
+
 
 public class ClusterFactory implements Serializable {
 	private static final long serialVersionUID = -5094018550295526175L;
 	
 	private boolean onlineUpdate;
 	private Map<String, FeatureTypeDefinition> featureTypeDefs;
+	private FeatureSchema schema;
 	
 	public ClusterFactory(Map<String, FeatureTypeDefinition> featureTypeDefs, boolean onlineUpdate) {
+		this(featureTypeDefs, null, onlineUpdate);
+	}
+	
+	public ClusterFactory(Map<String, FeatureTypeDefinition> featureTypeDefs, FeatureSchema schema, boolean onlineUpdate) {
 		this.onlineUpdate = onlineUpdate;
 		this.featureTypeDefs = featureTypeDefs;
+		this.schema = schema;
 	}
 	
 	public Cluster create() {
-		return (new Cluster(UUID.randomUUID().toString(), featureTypeDefs.values(), onlineUpdate));
+		return (new Cluster(UUID.randomUUID().toString(), featureTypeDefs.values(), schema, onlineUpdate));
 	}
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster;
+
+import java.util.List;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Interface for an index over the centroids of one feature type of a set of clusters.
+ * 
+ * A clusterer with a cluster index only compares an instance against the clusters the index returns 
+ * as candidates rather than every cluster.  The radius and distances used by the index are those of 
+ * the distance function registered for the indexed feature type.  Clusters that do not have the indexed 
+ * feature are always returned as candidates.
+ * 
+ * The index is rebuilt from the clusters before each clustering pass and updated when a cluster 
+ * centroid changes during online clustering.  Queries may be run concurrently between updates.
+ * 
+ * @author slangevin
+ *
+ */
+public interface ClusterIndex {
+	
+	/***
+	 * Return the name of the feature type that is indexed
+	 * 
+	 * @return the feature name
+	 */
+	public String getFeatureName();
+	
+	/***
+	 * Rebuild the index from the current centroids of the clusters
+	 * 
+	 * @param clusters the clusters to index
+	 */
+	public void build(List<Cluster> clusters);
+	
+	/***
+	 * Add a new cluster to the index or re-index a cluster whose centroid has changed
+	 * 
+	 * @param cluster the cluster
+	 */
+	public void update(Cluster cluster);
+	
+	/***
+	 * Return the clusters whose indexed feature may be within radius of the feature of inst.
+	 * 
+	 * @param inst the instance
+	 * @param radius the largest feature distance of interest
+	 * @return a superset of the clusters within radius, or null if the index can not restrict the search
+	 */
+	public List<Cluster> getCandidates(Instance inst, double radius);
+	
+	/***
+	 * Return clusters that include the cluster whose indexed feature is nearest the feature of inst.
+	 * 
+	 * @param inst the instance
+	 * @return the nearest candidates, or null if the index does not support nearest queries
+	 */
+	public List<Cluster> getNearestCandidates(Instance inst);
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.FeatureSchema;
+
+/***
+ * An immutable, array indexed plan for computing the weighted distance between two instances.
+ * 
+ * The plan is compiled once from the registered feature type definitions: feature types with a
+ * near zero weight are dropped, the weights are resolved up front and the remaining feature types
+ * are evaluated in a fixed order.  Clusterers use the plan in place of iterating their feature
+ * type definitions on every distance calculation.
+ * 
+ * When an instance was created with a FeatureSchema equal to the plan's, such as a deserialized 
+ * copy of it, its features are retrieved by slot rather than by name.
+ * 
+ * @author slangevin
+ *
+ */
+public class DistancePlan implements Serializable {
+	private static final long serialVersionUID = 4208567347816326915L;
+	private final static double MIN_WEIGHT = 0.00001;
+	
+	private final FeatureSchema schema;
+	private final String[] featureNames;
+	private final int[] slots;
+	@SuppressWarnings("rawtypes")
+	private final DistanceFunction[] distFuncs;
+	private final double[] weights;
+	
+	public DistancePlan(Collection<FeatureTypeDefinition> typeDefs) {
+		this(typeDefs, createSchema(typeDefs));
+	}
+	
+	@SuppressWarnings("rawtypes")
+	public DistancePlan(Collection<FeatureTypeDefinition> typeDefs, FeatureSchema schema) {
+		this.schema = schema;
+		
+		List<FeatureTypeDefinition> active = new ArrayList<FeatureTypeDefinition>(typeDefs.size());
+		for (FeatureTypeDefinition typedef : typeDefs) {
+			if (typedef.distFunc == null || typedef.distFunc.getWeight() < MIN_WEIGHT) continue;  // skip if weight is near zero
+			active.add(typedef);
+		}
+		
+		featureNames = new String[active.size()];
+		slots = new int[active.size()];
+		distFuncs = new DistanceFunction[active.size()];
+		weights = new double[active.size()];
+		
+		for (int i=0; i < active.size(); i++) {
+			FeatureTypeDefinition typedef = active.get(i);
+			featureNames[i] = typedef.featureName;
+			slots[i] = schema.getSlot(typedef.featureName);
+			distFuncs[i] = typedef.distFunc;
+			weights[i] = typedef.distFunc.getWeight();
+		}
+	}
+	
+	private static FeatureSchema createSchema(Collection<FeatureTypeDefinition> typeDefs) {
+		List<String> names = new ArrayList<String>(typeDefs.size());
+		for (FeatureTypeDefinition typedef : typeDefs) {
+			names.add(typedef.featureName);
+		}
+		return new FeatureSchema(names);
+	}
+	
+	/***
+	 * Return the feature schema used to resolve feature slots
+	 * 
+	 * @return the feature schema
+	 */
+	public FeatureSchema getSchema() {
+		return schema;
+	}
+	
+	/***
+	 * Return the number of feature types evaluated by this plan
+	 * 
+	 * @return the number of feature types
+	 */
+	public int size() {
+		return featureNames.length;
+	}
+	
+	/***
+	 * Return the feature name evaluated at position idx of this plan
+	 * 
+	 * @param idx the position in the plan
+	 * @return the feature name
+	 */
+	public String getFeatureName(int idx) {
+		return featureNames[idx];
+	}
+	
+	/***
+	 * Return the distance function evaluated at position idx of this plan
+	 * 
+	 * @param idx the position in the plan
+	 * @return the distance function
+	 */
+	@SuppressWarnings("unchecked")
+	public DistanceFunction<Feature> getDistanceFunction(int idx) {
+		return distFuncs[idx];
+	}
+	
+	/***
+	 * Return the weight of the feature type evaluated at position idx of this plan
+	 * 
+	 * @param idx the position in the plan
+	 * @return the weight
+	 */
+	public double getWeight(int idx) {
+		return weights[idx];
+	}
+	
+	/***
+	 * Return whether every distance function evaluated by this plan is a metric.  Since a positively
+	 * weighted sum of metrics is itself a metric, the plan distance then satisfies the triangle 
+	 * inequality for instances that have all of the plan's features.
+	 * 
+	 * @return true if the plan distance is a metric
+	 */
+	public boolean isMetric() {
+		for (int i=0; i < distFuncs.length; i++) {
+			if (!distFuncs[i].isMetric()) return false;
+		}
+		return true;
+	}
+	
+	/***
+	 * Return whether the features of an instance with the schema can be read by slot.  Schemas are 
+	 * compared by content so instances deserialized with a copy of the plan schema are slotted too.
+	 */
+	private boolean isSlotted(FeatureSchema instSchema) {
+		return (instSchema == schema || (instSchema != null && instSchema.equals(schema)));
+	}
+	
+	/***
+	 * Return whether the instance has every feature evaluated by this plan.
+	 * 
+	 * @param inst
+	 * @return true if no feature of the plan is missing from inst
+	 */
+	public boolean isComplete(Instance inst) {
+		boolean slotted = isSlotted(inst.getSchema());
+		
+		for (int i=0; i < featureNames.length; i++) {
+			Feature f = slotted ? inst.getFeature(slots[i]) : inst.getFeature(featureNames[i]);
+			if (f == null) return false;
+		}
+		return true;
+	}
+	
+	/***
+	 * Calculate the weighted distance between two instances.
+	 * 
+	 * @param inst1
+	 * @param inst2
+	 * @param penalizeMissingFeatures if true a feature missing from either instance contributes its full weight otherwise it contributes nothing
+	 * @return a double value representing the distance between inst1 and inst2
+	 */
+	public double distance(Instance inst1, Instance inst2, boolean penalizeMissingFeatures) {
+		return distance(inst1, inst2, penalizeMissingFeatures, Double.MAX_VALUE);
+	}
+	
+	/***
+	 * Calculate the weighted distance between two instances, abandoning the calculation once the 
+	 * partial sum exceeds cutoff.
+	 * 
+	 * Each distance function is given the remaining budget so those that support bounded evaluation
+	 * can stop early as well.  If the distance is less than or equal to cutoff the exact distance is 
+	 * returned, otherwise a value greater than cutoff is returned.
+	 * 
+	 * @param inst1
+	 * @param inst2
+	 * @param penalizeMissingFeatures if true a feature missing from either instance contributes its full weight otherwise it contributes nothing
+	 * @param cutoff the largest distance the caller is interested in
+	 * @return a double value representing the distance between inst1 and inst2
+	 */
+	@SuppressWarnings("unchecked")
+	public double distance(Instance inst1, Instance inst2, boolean penalizeMissingFeatures, double cutoff) {
+		double totalDist = 0;
+		boolean slotted1 = isSlotted(inst1.getSchema());
+		boolean slotted2 = isSlotted(inst2.getSchema());
+		
+		for (int i=0; i < featureNames.length; i++) {
+			Feature f1 = slotted1 ? inst1.getFeature(slots[i]) : inst1.getFeature(featureNames[i]);
+			Feature f2 = slotted2 ? inst2.getFeature(slots[i]) : inst2.getFeature(featureNames[i]);
+			
+			if (f1 == null || f2 == null) {
+				if (penalizeMissingFeatures) totalDist += weights[i];
+			}
+			else {
+				totalDist += distFuncs[i].distance(f1, f2, (cutoff - totalDist) / weights[i]) * weights[i];
+			}
+			if (totalDist > cutoff) break;  // no need to continue, the distance already exceeds the cutoff 
+		}
+		return totalDist;
+	}
+}
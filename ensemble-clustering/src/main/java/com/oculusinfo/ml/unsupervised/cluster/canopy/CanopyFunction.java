@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.canopy;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Interface for a cheap proxy that groups instances into overlapping canopies.
+ * 
+ * Instances that share at least one canopy key are in the same canopy.  A canopy function should
+ * be much cheaper to evaluate than the clusterer distance and place any two instances that could 
+ * be clustered together in a common canopy.
+ * 
+ * @author slangevin
+ *
+ */
+public interface CanopyFunction extends Serializable {
+	
+	/***
+	 * Return the keys of the canopies that the instance belongs to
+	 * 
+	 * @param inst the instance or cluster
+	 * @return the canopy keys, or an empty collection if the instance can not be placed in a canopy 
+	 */
+	public Collection<String> getCanopies(Instance inst);
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.canopy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * An index of clusters by canopy key.
+ * 
+ * A cluster is indexed under the canopies of its centroid and of every instance assigned to it, 
+ * so the candidate clusters of an instance are the clusters that share a canopy with it.
+ * 
+ * The number of members and centroid of each cluster in every canopy is counted, so that when
+ * the centroid moves out of a canopy that no member is in the cluster is removed from it.  Candidates 
+ * are returned in the order the clusters were indexed so ties are broken as they would be without
+ * the canopies.
+ * 
+ * @author slangevin
+ *
+ */
+public class CanopyIndex {
+	private final CanopyFunction canopy;
+	private final Map<String, Set<Cluster>> index = new HashMap<String, Set<Cluster>>();
+	private final Map<Cluster, Map<String, int[]>> counts = new IdentityHashMap<Cluster, Map<String, int[]>>();
+	private final Map<Cluster, Collection<String>> centroidKeys = new IdentityHashMap<Cluster, Collection<String>>();
+	private final Map<Cluster, Integer> ordinals = new IdentityHashMap<Cluster, Integer>();
+	
+	private final Comparator<Cluster> indexOrder = new Comparator<Cluster>() {
+		@Override
+		public int compare(Cluster a, Cluster b) {
+			return ordinals.get(a).compareTo(ordinals.get(b));
+		}
+	};
+	
+	public CanopyIndex(CanopyFunction canopy) {
+		this.canopy = canopy;
+	}
+	
+	private void increment(Cluster cluster, Collection<String> keys) {
+		Map<String, int[]> clusterCounts = counts.get(cluster);
+		if (clusterCounts == null) {
+			clusterCounts = new HashMap<String, int[]>();
+			counts.put(cluster, clusterCounts);
+			if (!ordinals.containsKey(cluster)) ordinals.put(cluster, ordinals.size());
+		}
+		
+		for (String key : keys) {
+			int[] count = clusterCounts.get(key);
+			if (count != null) {
+				count[0]++;
+				continue;
+			}
+			clusterCounts.put(key, new int[] { 1 });
+			
+			Set<Cluster> clusters = index.get(key);
+			if (clusters == null) {
+				clusters = new LinkedHashSet<Cluster>();
+				index.put(key, clusters);
+			}
+			clusters.add(cluster);
+		}
+	}
+	
+	private void decrement(Cluster cluster, Collection<String> keys) {
+		Map<String, int[]> clusterCounts = counts.get(cluster);
+		if (clusterCounts == null) return;
+		
+		for (String key : keys) {
+			int[] count = clusterCounts.get(key);
+			if (count == null || --count[0] > 0) continue;
+			clusterCounts.remove(key);
+			
+			Set<Cluster> clusters = index.get(key);
+			clusters.remove(cluster);
+			if (clusters.isEmpty()) index.remove(key);
+		}
+	}
+	
+	/***
+	 * Index the cluster under the canopies of an instance assigned to it
+	 * 
+	 * @param cluster the cluster
+	 * @param member an instance assigned to the cluster
+	 */
+	public void add(Cluster cluster, Instance member) {
+		increment(cluster, canopy.getCanopies(member));
+	}
+	
+	/***
+	 * Re-index the cluster under the canopies of its current centroid.  The cluster is removed from 
+	 * the canopies of its previous centroid that none of its members are in.
+	 * 
+	 * @param cluster the cluster
+	 */
+	public void update(Cluster cluster) {
+		Collection<String> keys = canopy.getCanopies(cluster);
+		increment(cluster, keys);
+		
+		Collection<String> old = centroidKeys.put(cluster, keys);
+		if (old != null) decrement(cluster, old);
+	}
+	
+	/***
+	 * Index the cluster under the canopies of its centroid and its members
+	 * 
+	 * @param cluster the cluster
+	 */
+	public void add(Cluster cluster) {
+		update(cluster);
+		for (Instance member : cluster.getMembers()) {
+			add(cluster, member);
+		}
+	}
+	
+	/***
+	 * Remove the cluster from every canopy
+	 * 
+	 * @param cluster the cluster
+	 */
+	public void remove(Cluster cluster) {
+		centroidKeys.remove(cluster);
+		Map<String, int[]> clusterCounts = counts.remove(cluster);
+		if (clusterCounts == null) return;
+		
+		for (String key : clusterCounts.keySet()) {
+			Set<Cluster> clusters = index.get(key);
+			clusters.remove(cluster);
+			if (clusters.isEmpty()) index.remove(key);
+		}
+	}
+	
+	/***
+	 * Return the clusters that share a canopy with the instance.  If the instance can not be placed 
+	 * in a canopy, all the clusters are returned.
+	 * 
+	 * @param inst the instance
+	 * @param clusters all the clusters
+	 * @return the candidate clusters
+	 */
+	public List<Cluster> getCandidates(Instance inst, List<Cluster> clusters) {
+		Collection<String> keys = canopy.getCanopies(inst);
+		if (keys.isEmpty()) return clusters;
+		
+		Set<Cluster> candidates = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+		for (String key : keys) {
+			Set<Cluster> found = index.get(key);
+			if (found != null) candidates.addAll(found);
+		}
+		
+		List<Cluster> result = new ArrayList<Cluster>(candidates);
+		Collections.sort(result, indexOrder);
+		return result;
+	}
+	
+	/***
+	 * Return the clusters of a candidate list that share a canopy with the instance, in the order of the list.
+	 * If the instance can not be placed in a canopy, all the candidates are returned.
+	 * 
+	 * @param inst the instance
+	 * @param candidates the candidate clusters to filter
+	 * @return the candidate clusters that share a canopy with the instance
+	 */
+	public List<Cluster> retainCandidates(Instance inst, List<Cluster> candidates) {
+		Collection<String> keys = canopy.getCanopies(inst);
+		if (keys.isEmpty()) return candidates;
+		
+		Set<Cluster> shared = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+		for (String key : keys) {
+			Set<Cluster> found = index.get(key);
+			if (found != null) shared.addAll(found);
+		}
+		
+		List<Cluster> result = new ArrayList<Cluster>(Math.min(candidates.size(), shared.size()));
+		for (Cluster c : candidates) {
+			if (shared.contains(c)) result.add(c);
+		}
+		return result;
+	}
+	
+	public void clear() {
+		index.clear();
+		counts.clear();
+		centroidKeys.clear();
+		ordinals.clear();
+	}
+}
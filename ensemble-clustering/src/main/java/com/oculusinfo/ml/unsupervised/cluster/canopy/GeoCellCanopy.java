@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.canopy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+
+/***
+ * A canopy function that places GeoSpatialFeatures in coarse latitude / longitude grid cells.
+ * 
+ * Each instance belongs to the canopies of the cells that intersect the spherical cap of one cell size 
+ * around it, so any two instances less than one cell size of great circle distance apart share a canopy.  
+ * The cap spans the rows above and below and widens in longitude with latitude, wrapping around the 
+ * anti-meridian.  Near the poles, where every longitude meets, instances within two cell sizes of a 
+ * pole also share a polar canopy, and instances within one cell size of a pole are only in it.
+ * 
+ * @author slangevin
+ *
+ */
+public class GeoCellCanopy implements CanopyFunction {
+	private static final long serialVersionUID = -3417402715846839120L;
+	private static final double EPSILON = 1e-9;
+	
+	private final String featureName;
+	private final double cellSize;
+	
+	/***
+	 * Create a geo cell canopy function
+	 * 
+	 * @param featureName the name of the GeoSpatialFeature
+	 * @param cellSize the size of a grid cell in degrees
+	 */
+	public GeoCellCanopy(String featureName, double cellSize) {
+		this.featureName = featureName;
+		this.cellSize = cellSize;
+	}
+	
+	public String getFeatureName() {
+		return featureName;
+	}
+	
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	@Override
+	public Collection<String> getCanopies(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		if (feature instanceof GeoSpatialFeature == false) return Collections.emptyList();
+		
+		GeoSpatialFeature geo = (GeoSpatialFeature)feature;
+		double lat = geo.getLatitude();
+		double lon = geo.getLongitude();
+		
+		List<String> keys = new ArrayList<String>(9);
+		
+		// an instance within two cells of a pole may be within one cell of an instance whose cap contains the pole
+		double polar = 90 - Math.abs(lat);
+		if (polar < 2 * cellSize) keys.add((lat > 0) ? "N" : "S");
+		if (polar <= cellSize) return keys;
+		
+		// the longitude half width of a cap that does not contain a pole
+		double dLon = Math.toDegrees(Math.asin(Math.sin(Math.toRadians(cellSize)) / Math.cos(Math.toRadians(lat)))) + EPSILON;
+		
+		long row = (long)Math.floor(lat / cellSize);
+		long cols = (long)Math.ceil(360 / cellSize);
+		long minCol = 0;
+		long numCols = cols;
+		if (2 * dLon + cellSize < 360) {
+			// the columns from the west to the east edge of the cap, wrapping around the anti-meridian
+			minCol = getCol(lon - dLon, cols);
+			numCols = ((getCol(lon + dLon, cols) - minCol + cols) % cols) + 1;
+		}
+		
+		for (long r = row-1; r <= row+1; r++) {
+			for (long i = 0; i < numCols; i++) {
+				keys.add(r + ":" + ((minCol + i) % cols));
+			}
+		}
+		return keys;
+	}
+	
+	/***
+	 * Return the grid column of a longitude in any range
+	 */
+	private long getCol(double lon, long cols) {
+		double normalized = lon - 360 * Math.floor((lon + 180) / 360);  // [-180, 180)
+		return Math.min(cols - 1, (long)Math.floor((normalized + 180) / cellSize));
+	}
+}
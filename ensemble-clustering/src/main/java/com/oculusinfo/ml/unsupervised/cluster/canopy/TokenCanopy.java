@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.canopy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.stats.FeatureFrequency;
+
+/***
+ * A canopy function that places instances with the same key string in a canopy, like
+ * ExactTokenMatchDistance.  The key is the case insensitive value of a StringFeature 
+ * or each word of a BagOfWordsFeature.
+ * 
+ * @author slangevin
+ *
+ */
+public class TokenCanopy implements CanopyFunction {
+	private static final long serialVersionUID = 5126890344152961737L;
+	
+	private final String featureName;
+	
+	public TokenCanopy(String featureName) {
+		this.featureName = featureName;
+	}
+	
+	public String getFeatureName() {
+		return featureName;
+	}
+
+	@Override
+	public Collection<String> getCanopies(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		
+		if (feature instanceof StringFeature) {
+			String value = ((StringFeature)feature).getValue();
+			if (value == null) return Collections.emptySet();
+			return Collections.singleton(value.toLowerCase(Locale.ROOT));
+		}
+		else if (feature instanceof BagOfWordsFeature) {
+			Set<String> keys = new LinkedHashSet<String>();
+			for (FeatureFrequency freq : ((BagOfWordsFeature)feature).getValues()) {
+				keys.add(freq.feature.getName().toLowerCase(Locale.ROOT));
+			}
+			return keys;
+		}
+		return Collections.emptySet();
+	}
+}
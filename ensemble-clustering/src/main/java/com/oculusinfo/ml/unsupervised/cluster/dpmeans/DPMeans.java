@@ -33,6 +33,7 @@ import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.unsupervised.cluster.Cluster;
 import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
 import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeansParallelInit;
 
 /***
  * The class implements the DP-Means clustering algorithm:
@@ -42,6 +43,9 @@ import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
  * This clusterer is useful when the number of clusters is unknown.  
  * Tuning is required to choose an appropriate threshold that controls when new clusters can be created. 
  * 
+ * DP-Means starts from a single randomly chosen mean and grows the clusters itself, so k-means|| 
+ * initialization is not supported.
+ * 
  * @author slangevin
  *
  */
@@ -61,7 +65,20 @@ public class DPMeans extends KMeans {
 		this.threshold = threshold;
 	}
 	
-	private List<Cluster> initKMeans(DataSet ds) {
+	/***
+	 * k-means|| initialization is not supported since DP-Means creates its own clusters
+	 * 
+	 * @throws UnsupportedOperationException if parallelInit is not null
+	 */
+	@Override
+	public void setParallelInit(KMeansParallelInit parallelInit) {
+		if (parallelInit != null) {
+			throw new UnsupportedOperationException("DP-Means does not support k-means|| initialization");
+		}
+	}
+	
+	@Override
+	protected List<Cluster> initKMeans(DataSet ds) {
 		List<Cluster> kmeans = new LinkedList<Cluster>();
 		
 		int ki = (ds.size() < k) ? ds.size(): k;
@@ -142,5 +159,10 @@ public class DPMeans extends KMeans {
 			double score, Cluster best, double bestScore) {
 		return (score < threshold && score < bestScore);  // lower score less than threshold is better
 	}
+	
+	@Override
+	protected double getDistanceCutoff() {
+		return threshold;
+	}
 
 }
@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.DistancePlan;
+import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
+
+/***
+ * The class implements Elkan's accelerated K-Means clustering algorithm.
+ * 
+ * When every registered distance function is a metric, the triangle inequality is used to skip
+ * distance calculations that cannot change the assignment of an instance.  For each instance an 
+ * upper bound on the distance to its assigned centroid and a lower bound on the distance to every
+ * other centroid are maintained across iterations and loosened by how far each centroid moved.
+ * An instance is only compared against a centroid when the bounds and the half distance between 
+ * the two centroids can not rule it out.
+ * 
+ * The clustering produced is the same as KMeans for the same initial k-means.  If any registered
+ * distance function is not a metric the standard KMeans algorithm is used.  Instances missing 
+ * any registered feature are compared against every centroid each iteration.
+ * 
+ * The lower bounds take n * k doubles of memory for n instances and k clusters on top of the data 
+ * set.  When n * k exceeds the lower bound budget (see setMaxLowerBounds) the standard KMeans 
+ * algorithm is used instead.
+ * 
+ * @author slangevin
+ *
+ */
+public class ElkanKMeans extends KMeans {
+	
+	/***
+	 * The default maximum number of lower bounds (n * k) that are held in memory, 256 MB of doubles
+	 */
+	public static final long DEFAULT_MAX_LOWER_BOUNDS = 32L * 1024 * 1024;
+	
+	private long maxLowerBounds = DEFAULT_MAX_LOWER_BOUNDS;
+
+	/***
+	 * Create an Elkan accelerated K-Means clusterer
+	 * 
+	 * @param k the number of clusters
+	 * @param maxIterations the maximum number of iterations
+	 * @param penalizeMissingFeatures
+	 */
+	public ElkanKMeans(int k, int maxIterations, boolean penalizeMissingFeatures) {
+		super(k, maxIterations, penalizeMissingFeatures);
+	}
+	
+	/***
+	 * Set the maximum number of lower bounds (number of instances * k) to hold in memory.  Larger 
+	 * data sets are clustered with the standard KMeans algorithm.
+	 * 
+	 * @param maxLowerBounds
+	 */
+	public void setMaxLowerBounds(long maxLowerBounds) {
+		this.maxLowerBounds = maxLowerBounds;
+	}
+	
+	public long getMaxLowerBounds() {
+		return maxLowerBounds;
+	}
+	
+	/***
+	 * Assigns each instance in a partition of the data set to its nearest centroid using the 
+	 * distance bounds to prune distance calculations.  Each partition writes to a disjoint 
+	 * index range of the shared assignment and bound arrays.
+	 */
+	private class AssignmentTask implements Callable<Integer> {
+		private final Instance[] instances;
+		private final boolean[] complete;
+		private final Cluster[] centers;
+		private final double[][] centerDist;
+		private final double[] halfMinDist;
+		private final int[] assign;
+		private final double[] upper;
+		private final double[][] lower;
+		private final boolean exact;
+		private final int sIdx;
+		private final int eIdx;
+		
+		public AssignmentTask(Instance[] instances, boolean[] complete, Cluster[] centers, double[][] centerDist, double[] halfMinDist, 
+				int[] assign, double[] upper, double[][] lower, boolean exact, int sIdx, int eIdx) {
+			this.instances = instances;
+			this.complete = complete;
+			this.centers = centers;
+			this.centerDist = centerDist;
+			this.halfMinDist = halfMinDist;
+			this.assign = assign;
+			this.upper = upper;
+			this.lower = lower;
+			this.exact = exact;
+			this.sIdx = sIdx;
+			this.eIdx = eIdx;
+		}
+		
+		private int nearest(int i) {
+			Instance inst = instances[i];
+			double bestDist = Double.MAX_VALUE;
+			int best = -1;
+			
+			for (int j=0; j < centers.length; j++) {
+				double d = distance(inst, centers[j]);
+				lower[i][j] = d;
+				if (d < bestDist) {
+					bestDist = d;
+					best = j;
+				}
+			}
+			upper[i] = bestDist;
+			return best;
+		}
+		
+		private int bounded(int i) {
+			Instance inst = instances[i];
+			int a = assign[i];
+			
+			// no other centroid can be closer than half the distance to the nearest other centroid
+			if (upper[i] <= halfMinDist[a]) return a;
+			
+			boolean tight = false;
+			for (int j=0; j < centers.length; j++) {
+				if (j == a || upper[i] <= lower[i][j] || upper[i] <= 0.5 * centerDist[a][j]) continue;
+				
+				if (!tight) {	// tighten the upper bound before calculating the distance to centroid j 
+					upper[i] = distance(inst, centers[a]);
+					lower[i][a] = upper[i];
+					tight = true;
+					if (upper[i] <= lower[i][j] || upper[i] <= 0.5 * centerDist[a][j]) continue;
+				}
+				
+				double d = distance(inst, centers[j]);
+				lower[i][j] = d;
+				if (d < upper[i]) {
+					a = j;
+					upper[i] = d;
+				}
+			}
+			return a;
+		}
+		
+		@Override
+		public Integer call() {
+			int changes = 0;
+			
+			for (int i=sIdx; i < eIdx; i++) {
+				int a = (exact || !complete[i] || assign[i] < 0) ? nearest(i) : bounded(i);
+				if (a != assign[i]) {
+					assign[i] = a;
+					changes++;
+				}
+			}
+			return changes;
+		}
+	}
+	
+	private int assign(List<AssignmentTask> tasks) {
+		int changes = 0;
+		
+		try {
+			List<Future<Integer>> results = getExecutor().invokeAll(tasks);
+			for (int i=0; i < results.size(); i++) {
+				try {
+					changes += results.get(i).get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return changes;
+	}
+	
+	private Instance snapshot(Cluster center, DistancePlan plan) {
+		Instance copy = new Instance(center.getId());
+		for (int i=0; i < plan.size(); i++) {
+			Feature f = center.getFeature(plan.getFeatureName(i));
+			if (f != null) copy.addFeature(f);
+		}
+		return copy;
+	}
+	
+	@Override
+	public ClusterResult doCluster(DataSet ds) {
+		final DistancePlan plan = distancePlan;
+		
+		if (!plan.isMetric()) {
+			log.info("Registered distance functions are not all metrics.  Using standard K-Means.");
+			return super.doCluster(ds);
+		}
+		if ((long)ds.size() * k > maxLowerBounds) {
+			log.info("Lower bounds for {} instances and {} clusters exceed the memory budget.  Using standard K-Means.", ds.size(), k);
+			return super.doCluster(ds);
+		}
+		
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		List<Cluster> kmeans = initKMeans(ds);
+		
+		double start = System.currentTimeMillis();
+		
+		final Instance[] instances = new Instance[ds.size()];
+		final boolean[] complete = new boolean[instances.length];
+		int idx = 0;
+		for (Instance inst : ds) {
+			complete[idx] = plan.isComplete(inst);
+			instances[idx++] = inst;
+		}
+		final Cluster[] centers = kmeans.toArray(new Cluster[kmeans.size()]);
+		final int[] assign = new int[instances.length];
+		final double[] upper = new double[instances.length];
+		final double[][] lower = new double[instances.length][centers.length];
+		final double[][] centerDist = new double[centers.length][centers.length];
+		final double[] halfMinDist = new double[centers.length];
+		final double[] shift = new double[centers.length];
+		Arrays.fill(assign, -1);
+		
+		int numPartitions = Math.max(1, Math.min(instances.length, threadCount * PARTITIONS_PER_THREAD));
+		int partitionSize = Math.max(1, (instances.length + numPartitions - 1) / numPartitions);
+		
+		int iteration = 0;
+		
+		while (iteration < maxIterations) {
+			log.info("K-Means iteration {}", (iteration+1));
+			
+			// the bounds only hold when every centroid has all the registered features
+			boolean exact = (iteration == 0);
+			for (Cluster center : centers) {
+				if (!plan.isComplete(center)) exact = true;
+			}
+			
+			// calculate the distances between centroids
+			for (int j=0; j < centers.length; j++) {
+				double min = Double.MAX_VALUE;
+				for (int l=0; l < centers.length; l++) {
+					if (l == j) continue;
+					if (l < j) {
+						centerDist[j][l] = centerDist[l][j];
+					}
+					else {
+						centerDist[j][l] = distance(centers[j], centers[l]);
+					}
+					if (centerDist[j][l] < min) min = centerDist[j][l];
+				}
+				halfMinDist[j] = 0.5 * min;
+			}
+			
+			// assign each partition of instances to the nearest centroid in parallel
+			List<AssignmentTask> tasks = new ArrayList<AssignmentTask>(numPartitions);
+			for (int sIdx = 0; sIdx < instances.length; sIdx += partitionSize) {
+				int eIdx = Math.min(sIdx + partitionSize, instances.length);
+				tasks.add(new AssignmentTask(instances, complete, centers, centerDist, halfMinDist, assign, upper, lower, exact, sIdx, eIdx));
+			}
+			int changes = assign(tasks);
+			
+			if (changes == 0) break;
+			
+			// recompute the centroids from the new assignments
+			Instance[] previous = new Instance[centers.length];
+			for (int j=0; j < centers.length; j++) {
+				previous[j] = snapshot(centers[j], plan);
+				centers[j].reset();
+			}
+			for (int i=0; i < instances.length; i++) {
+				centers[assign[i]].add(instances[i]);
+			}
+			for (int j=0; j < centers.length; j++) {
+				if (!centers[j].isEmpty()) centers[j].updateCentroid();
+				shift[j] = distance(previous[j], centers[j]);
+			}
+			
+			// loosen the bounds by how far each centroid moved
+			for (int i=0; i < instances.length; i++) {
+				upper[i] += shift[assign[i]];
+				for (int j=0; j < centers.length; j++) {
+					lower[i][j] = Math.max(lower[i][j] - shift[j], 0);
+				}
+			}
+			
+			if (debugClusters) {
+			    log.info("Post iteration {};", iteration+1);
+			    for (int c=0; c < centers.length; c++)
+			        log.info("\t "+c+": "+centers[c].getIterationDebugInfo());
+			}
+			
+			iteration++;
+		}
+		log.info("K-Means completed with {} iterations", iteration);
+		
+		double clusterTime = System.currentTimeMillis() - start;
+		log.info("Clustering time (s): {}", clusterTime / 1000);
+		
+		return new InMemoryClusterResult(kmeans);
+	}
+}
@@ -28,6 +28,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+
 import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterer;
@@ -46,6 +48,8 @@ public class KMeans extends AbstractClusterer {
 	protected int k;
 	protected int maxIterations;
 	protected boolean debugClusters;
+	protected KMeansParallelInit parallelInit;
+	protected Random rnd = new Random();
 	
 	public KMeans(int k, int maxIterations, boolean penalizeMissingFeatures) {
 		super(false, false, penalizeMissingFeatures);
@@ -66,6 +70,58 @@ public class KMeans extends AbstractClusterer {
 		return maxIterations;
 	}
 	
+	/***
+	 * Select the initial k-means with k-means|| rather than the sequential K++ method
+	 * 
+	 * @param parallelInit the k-means|| initializer or null to use K++
+	 */
+	public void setParallelInit(KMeansParallelInit parallelInit) {
+		this.parallelInit = parallelInit;
+	}
+	
+	public KMeansParallelInit getParallelInit() {
+		return parallelInit;
+	}
+	
+	/***
+	 * Set the seed of the random number generator used to select the initial k-means
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		rnd = new Random(seed);
+	}
+	
+	/***
+	 * k-means|| method for selecting initial k-means using the executor service for each sampling round
+	 * 
+	 * @param ds
+	 * @return the initial kmeans
+	 */
+	private List<Cluster> initParallelKMeans(DataSet ds) {
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		Instance[] instances = new Instance[ds.size()];
+		int idx = 0;
+		for (Instance inst : ds) {
+			instances[idx++] = inst;
+		}
+		
+		List<Cluster> kmeans = new LinkedList<Cluster>();
+		for (Instance inst : parallelInit.select(instances, k, distancePlan, penalizeMissingFeatures, getExecutor())) {
+			Cluster cluster = this.createCluster();
+			cluster.add(inst);
+			cluster.updateCentroid();
+			kmeans.add(cluster);
+		}
+		
+		if (kmeans.size() < k) {
+			log.info("Couldn't find k centroids to initialize k-means||.  Using " + kmeans.size() + " centroids.");
+		}
+		return kmeans;
+	}
+	
 	/***
 	 * K++ method for selecting initial k-means
 	 * 
@@ -75,10 +131,14 @@ public class KMeans extends AbstractClusterer {
 	 * 3) Choose one new data point at random as a new center, using a weighted probability distribution where a point x is chosen with probability proportional to D(x)2.
 	 * 4) Repeat Steps 2 and 3 until k centers have been chosen.
 	 * 
+	 * If a k-means|| initializer has been set it is used instead.
+	 * 
 	 * @param ds
 	 * @return the initial kmeans
 	 */
-	private List<Cluster> initKMeans(DataSet ds) {
+	protected List<Cluster> initKMeans(DataSet ds) {
+		if (parallelInit != null) return initParallelKMeans(ds);
+		
 		final int MAX_ATTEMPT = 3;
 		List<Cluster> kmeans = new LinkedList<Cluster>();
 		
@@ -88,7 +148,7 @@ public class KMeans extends AbstractClusterer {
 		ArrayList<String> keys = new ArrayList<String>(ds.getKeys());
 		
 	    // select first cluster with a uniform distribution
-	    Collections.shuffle(keys);
+	    Collections.shuffle(keys, rnd);
 	    
 	    Cluster cluster = this.createCluster();
 	    cluster.add( ds.get(keys.get(0)) );
@@ -108,7 +168,7 @@ public class KMeans extends AbstractClusterer {
     				double d = this.distance(c, inst);
     				if (d < min) min = d;
     			}
-    			if (Math.random() < Math.pow(min, 2)) {
+    			if (rnd.nextDouble() < Math.pow(min, 2)) {
     				cluster = this.createCluster();
     				cluster.add( ds.get(key) );
     				cluster.updateCentroid();
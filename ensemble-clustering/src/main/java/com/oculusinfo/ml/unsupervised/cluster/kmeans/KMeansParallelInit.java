@@ -0,0 +1,362 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.kmeans;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.unsupervised.cluster.DistancePlan;
+
+/***
+ * The class implements the k-means|| (scalable K++) method for selecting initial k-means.
+ * 
+ * The algorithm is as follows:
+ * 1) Choose one candidate uniformly at random from among the data points and compute the cost, 
+ *    the sum of D(x)^2 over the data points, where D(x) is the distance between x and the nearest candidate.
+ * 2) For a small number of rounds, independently sample each data point x as a new candidate with 
+ *    probability l * D(x)^2 / cost, where l is the oversampling factor, and update D(x) and the cost.
+ * 3) Weight each candidate by the number of data points it is the nearest candidate to.
+ * 4) Recluster the weighted candidates into k initial k-means with the K++ method. 
+ * 
+ * Each round is a single data parallel pass over the data points, so the rounds can be run on the 
+ * clusterer executor service or as distributed operations.  The reclustering step only touches the 
+ * candidates and is shared by the local and distributed implementations.
+ * 
+ * @author slangevin
+ *
+ */
+public class KMeansParallelInit implements Serializable {
+	private static final long serialVersionUID = -1736095623170489257L;
+	private final static int DEFAULT_ROUNDS = 5;
+	private final static int PARTITIONS = Runtime.getRuntime().availableProcessors() * 4;
+	
+	protected static Logger log = LoggerFactory.getLogger("com.oculusinfo");
+	
+	private final int rounds;
+	private final double oversampling;
+	private Random rnd = new Random();
+	
+	/***
+	 * Create a k-means|| initializer with 5 rounds and an oversampling factor of 2k
+	 */
+	public KMeansParallelInit() {
+		this(DEFAULT_ROUNDS, -1);
+	}
+	
+	/***
+	 * Create a k-means|| initializer
+	 * 
+	 * @param rounds the number of sampling rounds
+	 * @param oversampling the expected number of candidates sampled per round, if less than or equal to 0 then 2k is used
+	 */
+	public KMeansParallelInit(int rounds, double oversampling) {
+		this.rounds = rounds;
+		this.oversampling = oversampling;
+	}
+	
+	public int getRounds() {
+		return rounds;
+	}
+	
+	/***
+	 * Return the expected number of candidates sampled per round
+	 * 
+	 * @param k the number of k-means
+	 * @return the oversampling factor
+	 */
+	public double getOversampling(int k) {
+		return (oversampling > 0) ? oversampling : 2 * k;
+	}
+	
+	/***
+	 * Set the seed of the random number generator used to sample candidates
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		rnd = new Random(seed);
+	}
+	
+	/***
+	 * Return a seed drawn from the random number generator, used to seed the sampling of distributed rounds
+	 */
+	public long nextSeed() {
+		return rnd.nextLong();
+	}
+	
+	/***
+	 * Return the squared distance of inst to the nearest of the candidates
+	 */
+	public static double cost(Instance inst, List<Instance> candidates, DistancePlan plan, boolean penalizeMissingFeatures) {
+		double min = Double.MAX_VALUE;
+		for (Instance c : candidates) {
+			double d = plan.distance(inst, c, penalizeMissingFeatures);
+			if (d < min) min = d;
+		}
+		return min * min;
+	}
+	
+	/***
+	 * Return the index of the nearest of the candidates to inst
+	 */
+	public static int nearest(Instance inst, List<Instance> candidates, DistancePlan plan, boolean penalizeMissingFeatures) {
+		double min = Double.MAX_VALUE;
+		int best = 0;
+		for (int i=0; i < candidates.size(); i++) {
+			double d = plan.distance(inst, candidates.get(i), penalizeMissingFeatures);
+			if (d < min) {
+				min = d;
+				best = i;
+			}
+		}
+		return best;
+	}
+	
+	private static <T> List<T> invoke(ExecutorService exec, List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		
+		if (exec == null) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return results;
+		}
+		
+		try {
+			List<Future<T>> futures = exec.invokeAll(tasks);
+			for (int i=0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return results;
+	}
+	
+	/***
+	 * Select initial k-means from the instances using k-means||.
+	 * 
+	 * @param instances the data points
+	 * @param k the number of k-means
+	 * @param plan the distance plan of the clusterer
+	 * @param penalizeMissingFeatures
+	 * @param exec the executor service to run each round on or null to run on this thread 
+	 * @return up to k instances to use as the initial k-means
+	 */
+	public List<Instance> select(final Instance[] instances, int k, final DistancePlan plan, final boolean penalizeMissingFeatures, ExecutorService exec) {
+		final List<Instance> candidates = new ArrayList<Instance>();
+		if (instances.length == 0 || k <= 0) return candidates;
+		
+		final double[] costs = new double[instances.length];
+		final double l = getOversampling(k);
+		
+		int numPartitions = Math.min(instances.length, PARTITIONS);
+		int partitionSize = (instances.length + numPartitions - 1) / numPartitions;
+		
+		candidates.add(instances[rnd.nextInt(instances.length)]);
+		List<Instance> added = candidates;
+		boolean first = true;
+		
+		for (int round=0; ; round++) {
+			// update the cost of each instance with the candidates added in the last round
+			final List<Instance> newCandidates = new ArrayList<Instance>(added);
+			final boolean init = first;
+			List<Callable<Double>> costTasks = new ArrayList<Callable<Double>>(numPartitions);
+			for (int s = 0; s < instances.length; s += partitionSize) {
+				final int sIdx = s;
+				final int eIdx = Math.min(s + partitionSize, instances.length);
+				costTasks.add(new Callable<Double>() {
+					@Override
+					public Double call() {
+						double sum = 0;
+						for (int i=sIdx; i < eIdx; i++) {
+							double c = cost(instances[i], newCandidates, plan, penalizeMissingFeatures);
+							if (init || c < costs[i]) costs[i] = c;
+							sum += costs[i];
+						}
+						return sum;
+					}
+				});
+			}
+			double total = 0;
+			for (Double sum : invoke(exec, costTasks)) {
+				total += sum;
+			}
+			first = false;
+			
+			if (round == rounds || total <= 0) break;
+			
+			// independently sample each instance as a candidate proportional to its cost
+			final double scale = l / total;
+			List<Callable<List<Instance>>> sampleTasks = new ArrayList<Callable<List<Instance>>>(numPartitions);
+			for (int s = 0; s < instances.length; s += partitionSize) {
+				final int sIdx = s;
+				final int eIdx = Math.min(s + partitionSize, instances.length);
+				final Random prng = new Random(rnd.nextLong());
+				sampleTasks.add(new Callable<List<Instance>>() {
+					@Override
+					public List<Instance> call() {
+						List<Instance> sampled = new ArrayList<Instance>();
+						for (int i=sIdx; i < eIdx; i++) {
+							if (prng.nextDouble() < costs[i] * scale) sampled.add(instances[i]);
+						}
+						return sampled;
+					}
+				});
+			}
+			added = new ArrayList<Instance>();
+			for (List<Instance> sampled : invoke(exec, sampleTasks)) {
+				added.addAll(sampled);
+			}
+			candidates.addAll(added);
+		}
+		
+		log.info("k-means|| selected {} candidates", candidates.size());
+		
+		// weight each candidate by the number of instances nearest to it
+		List<Callable<long[]>> weightTasks = new ArrayList<Callable<long[]>>(numPartitions);
+		for (int s = 0; s < instances.length; s += partitionSize) {
+			final int sIdx = s;
+			final int eIdx = Math.min(s + partitionSize, instances.length);
+			weightTasks.add(new Callable<long[]>() {
+				@Override
+				public long[] call() {
+					long[] counts = new long[candidates.size()];
+					for (int i=sIdx; i < eIdx; i++) {
+						counts[nearest(instances[i], candidates, plan, penalizeMissingFeatures)]++;
+					}
+					return counts;
+				}
+			});
+		}
+		long[] weights = new long[candidates.size()];
+		for (long[] counts : invoke(exec, weightTasks)) {
+			for (int i=0; i < weights.length; i++) {
+				weights[i] += counts[i];
+			}
+		}
+		
+		return recluster(candidates, weights, k, plan, penalizeMissingFeatures);
+	}
+	
+	/***
+	 * Recluster weighted candidates into k initial k-means using the K++ method, where a candidate 
+	 * is chosen with probability proportional to its weight times D(x)^2.
+	 * 
+	 * @param candidates the candidates sampled from the data points
+	 * @param weights the number of data points nearest each candidate
+	 * @param k the number of k-means
+	 * @param plan the distance plan of the clusterer
+	 * @param penalizeMissingFeatures
+	 * @return up to k candidates to use as the initial k-means
+	 */
+	public List<Instance> recluster(List<Instance> candidates, long[] weights, int k, DistancePlan plan, boolean penalizeMissingFeatures) {
+		List<Instance> kmeans = new ArrayList<Instance>(k);
+		int n = candidates.size();
+		if (n <= k) {
+			kmeans.addAll(candidates);
+			return kmeans;
+		}
+		
+		// select the first k-mean proportional to weight
+		double[] probs = new double[n];
+		for (int i=0; i < n; i++) {
+			probs[i] = weights[i];
+		}
+		boolean[] used = new boolean[n];
+		double[] costs = new double[n];
+		Arrays.fill(costs, Double.MAX_VALUE);
+		
+		int next = choose(probs, used);
+		while (next >= 0) {
+			Instance mean = candidates.get(next);
+			kmeans.add(mean);
+			used[next] = true;
+			if (kmeans.size() == k) break;
+			
+			for (int i=0; i < n; i++) {
+				if (used[i]) {
+					probs[i] = 0;
+					continue;
+				}
+				double d = plan.distance(candidates.get(i), mean, penalizeMissingFeatures);
+				if (d * d < costs[i]) costs[i] = d * d;
+				probs[i] = weights[i] * costs[i];
+			}
+			next = choose(probs, used);
+		}
+		return kmeans;
+	}
+	
+	/***
+	 * Return a random unused index chosen proportional to probs, or uniformly if all probs are 0
+	 */
+	private int choose(double[] probs, boolean[] used) {
+		double total = 0;
+		int unused = 0;
+		for (int i=0; i < probs.length; i++) {
+			if (used[i]) continue;
+			total += probs[i];
+			unused++;
+		}
+		if (unused == 0) return -1;
+		
+		if (total <= 0) {
+			int pick = rnd.nextInt(unused);
+			for (int i=0; i < probs.length; i++) {
+				if (!used[i] && pick-- == 0) return i;
+			}
+		}
+		
+		double r = rnd.nextDouble() * total;
+		int last = -1;
+		for (int i=0; i < probs.length; i++) {
+			if (used[i]) continue;
+			last = i;
+			r -= probs[i];
+			if (r < 0) return i;
+		}
+		return last;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.kmeans;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
+
+/***
+ * The class implements the Mini-Batch K-Means clustering algorithm for very large data sets.
+ * 
+ * Rather than assigning every instance on every iteration, each iteration draws a random batch of
+ * instances from the data set, finds the nearest k-mean of each and adds the batch instance to that
+ * k-mean's centroids.  Centroids are never reset between iterations, so a centroid that averages its 
+ * features (such as MeanNumericVectorCentroid) moves towards each new instance with a per k-mean 
+ * learning rate of one over the number of instances it has seen.  The initial k-means are chosen 
+ * with the K++ method on a random sample of the data set.
+ * 
+ * After the last iteration a single full pass assigns every instance to its nearest k-mean and 
+ * the centroids are recomputed from the cluster members.
+ * 
+ * Since a DataSet has no random access the instances are first copied into an array of references
+ * to sample the batches, so the data set must fit in memory along with one reference per instance.
+ * 
+ * @author slangevin
+ *
+ */
+public class MiniBatchKMeans extends KMeans {
+	private final static int INIT_BATCHES = 3;
+	
+	protected int batchSize;
+	
+	/***
+	 * Create a Mini-Batch K-Means clusterer
+	 * 
+	 * @param k the number of clusters
+	 * @param batchSize the number of instances sampled per iteration
+	 * @param maxIterations the number of mini-batch iterations
+	 * @param penalizeMissingFeatures
+	 */
+	public MiniBatchKMeans(int k, int batchSize, int maxIterations, boolean penalizeMissingFeatures) {
+		super(k, maxIterations, penalizeMissingFeatures);
+		this.batchSize = batchSize;
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/***
+	 * Return a random sample of size distinct instances without copying the data set keys
+	 */
+	private DataSet sample(Instance[] instances, int size) {
+		DataSet sample = new DataSet();
+		
+		if (size >= instances.length) {
+			for (Instance inst : instances) {
+				sample.add(inst);
+			}
+			return sample;
+		}
+		
+		Set<Integer> picked = new HashSet<Integer>(size * 2);
+		while (picked.size() < size) {
+			int idx = rnd.nextInt(instances.length);
+			if (picked.add(idx)) sample.add(instances[idx]);
+		}
+		return sample;
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void learn(Cluster mean, Instance inst) {
+		for (Map.Entry<String, Centroid> entry : mean.getCentroids().entrySet()) {
+			Feature feature = inst.getFeature(entry.getKey());
+			if (feature != null) {
+				entry.getValue().add(feature);
+			}
+		}
+	}
+	
+	@Override
+	public ClusterResult doCluster(DataSet ds) {
+		final Instance[] instances = new Instance[ds.size()];
+		int idx = 0;
+		for (Instance inst : ds) {
+			instances[idx++] = inst;
+		}
+		
+		List<Cluster> kmeans = initKMeans(sample(instances, Math.max(k, batchSize * INIT_BATCHES)));
+		
+		double start = System.currentTimeMillis();
+		
+		final Cluster[] means = kmeans.toArray(new Cluster[kmeans.size()]);
+		final Instance[] batch = new Instance[Math.min(batchSize, instances.length)];
+		final Cluster[] nearest = new Cluster[batch.length];
+		final double[] scores = new double[batch.length];
+		
+		int iteration = 0;
+		
+		while (iteration < maxIterations && batch.length > 0) {
+			log.debug("Mini-Batch K-Means iteration {}", (iteration+1));
+			
+			// sample the batch with replacement
+			for (int i=0; i < batch.length; i++) {
+				batch[i] = instances[rnd.nextInt(instances.length)];
+			}
+			
+			assignNearest(batch, means, nearest, scores);
+			
+			// move each nearest k-mean towards its batch instances
+			Set<Cluster> modified = new LinkedHashSet<Cluster>();
+			for (int i=0; i < batch.length; i++) {
+				if (nearest[i] == null) continue;
+				learn(nearest[i], batch[i]);
+				modified.add(nearest[i]);
+			}
+			for (Cluster mean : modified) {
+				mean.updateCentroid();
+			}
+			
+			iteration++;
+		}
+		log.info("Mini-Batch K-Means completed with {} iterations", iteration);
+		
+		// final pass to assign every instance to the nearest k-mean
+		for (Cluster mean : kmeans) {
+			mean.reset();
+		}
+		doCluster(ds, kmeans);
+		
+		if (debugClusters) {
+		    for (int c=0; c < means.length; c++)
+		        log.info("\t "+c+": "+means[c].getIterationDebugInfo());
+		}
+		
+		double clusterTime = System.currentTimeMillis() - start;
+		log.info("Clustering time (s): {}", clusterTime / 1000);
+		
+		return new InMemoryClusterResult(kmeans);
+	}
+}
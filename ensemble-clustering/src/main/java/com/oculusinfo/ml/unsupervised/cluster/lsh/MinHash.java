@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.lsh;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Random;
+
+/***
+ * A family of MinHash functions that computes signatures of token sets.
+ * 
+ * The fraction of positions where the signatures of two token sets agree is an unbiased estimate 
+ * of the Jaccard similarity of the sets.
+ * 
+ * @author slangevin
+ *
+ */
+public class MinHash implements Serializable {
+	private static final long serialVersionUID = 2861513938429367518L;
+	
+	private final long[] multipliers;
+	private final long[] offsets;
+	
+	/***
+	 * Create a family of MinHash functions
+	 * 
+	 * @param numHashes the length of the signatures
+	 * @param seed the random seed used to pick the hash functions
+	 */
+	public MinHash(int numHashes, long seed) {
+		Random rnd = new Random(seed);
+		multipliers = new long[numHashes];
+		offsets = new long[numHashes];
+		for (int i=0; i < numHashes; i++) {
+			multipliers[i] = rnd.nextLong() | 1;  // odd multipliers are invertible
+			offsets[i] = rnd.nextLong();
+		}
+	}
+	
+	public int getNumHashes() {
+		return multipliers.length;
+	}
+	
+	/***
+	 * Mix the bits of a 64 bit value (the MurmurHash3 finalizer)
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/***
+	 * Compute the MinHash signature of a set of tokens
+	 * 
+	 * @param tokens the tokens
+	 * @return the signature, all Long.MAX_VALUE for an empty set of tokens
+	 */
+	public long[] signature(Collection<String> tokens) {
+		long[] sig = new long[multipliers.length];
+		for (int i=0; i < sig.length; i++) sig[i] = Long.MAX_VALUE;
+		
+		for (String token : tokens) {
+			long h = mix(token.hashCode());
+			for (int i=0; i < sig.length; i++) {
+				long v = mix(h * multipliers[i] + offsets[i]);
+				if (v < sig[i]) sig[i] = v;
+			}
+		}
+		return sig;
+	}
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.lsh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.stats.FeatureFrequency;
+import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+/***
+ * A locality sensitive hashing index over the token sets of the BagOfWordsFeature or StringFeature 
+ * centroids of clusters.  The tokens of a BagOfWordsFeature are its terms and the tokens of a 
+ * StringFeature are its lower cased white space separated words.
+ * 
+ * Each centroid's MinHash signature is split into bands of rows, and every band is hashed into a bucket.  
+ * The candidates for an instance are the clusters that share a bucket with it in at least one band.  
+ * Two token sets with Jaccard similarity s share a bucket with probability 1 - (1 - s^rows)^bands.
+ * 
+ * The rows per band are derived from the clustering threshold.  Two bags of words that are within the 
+ * threshold of each other under the bag of words ExactTokenMatchDistance have a Jaccard similarity of 
+ * at least (1 - threshold) / (1 + threshold).  The index uses the largest number of rows that still 
+ * finds a cluster at that similarity with the configured recall, which keeps the buckets as selective 
+ * as possible.  This bound only holds for ExactTokenMatchDistance: under CosineDistance or the 
+ * StringFeature distance functions a cluster within the threshold may have a lower Jaccard similarity, 
+ * so the configured recall is not guaranteed.
+ * 
+ * Unlike the other cluster indexes the candidates are approximate.  LSH recall is probabilistic, so even 
+ * under ExactTokenMatchDistance a cluster within the threshold is missed with a probability of up to 
+ * 1 - recall.  Queries with a radius larger than the threshold are not covered by the index and return 
+ * null so that every cluster is searched.
+ * 
+ * @author slangevin
+ *
+ */
+public class MinHashClusterIndex extends AbstractClusterIndex {
+	private final static int DEFAULT_NUM_HASHES = 128;
+	private final static double DEFAULT_RECALL = 0.95;
+	private final static long SEED = 0x5DEECE66DL;
+	private final static double EPSILON = 1e-9;
+	
+	private final double threshold;
+	private final double recall;
+	private final MinHash minHash;
+	private final int rows;
+	private final int bands;
+	
+	private final List<Map<Long, List<Cluster>>> buckets;
+	private final Map<Cluster, long[]> bandKeys = new IdentityHashMap<Cluster, long[]>();
+	
+	public MinHashClusterIndex(String featureName, double threshold) {
+		this(featureName, threshold, DEFAULT_NUM_HASHES, DEFAULT_RECALL);
+	}
+	
+	/***
+	 * Create a MinHash LSH cluster index
+	 * 
+	 * @param featureName the name of the BagOfWordsFeature or StringFeature
+	 * @param threshold the clustering threshold for the feature
+	 * @param numHashes the length of the MinHash signatures
+	 * @param recall the probability of finding a cluster at the lowest Jaccard similarity within threshold
+	 */
+	public MinHashClusterIndex(String featureName, double threshold, int numHashes, double recall) {
+		super(featureName);
+		this.threshold = threshold;
+		this.recall = recall;
+		this.minHash = new MinHash(numHashes, SEED);
+		
+		double similarity = (1 - threshold) / (1 + threshold);
+		
+		int r = 1;
+		while (r < numHashes && getRecall(similarity, r + 1, numHashes / (r + 1)) >= recall) {
+			r++;
+		}
+		this.rows = r;
+		this.bands = numHashes / r;
+		
+		buckets = new ArrayList<Map<Long, List<Cluster>>>(bands);
+		for (int i=0; i < bands; i++) {
+			buckets.add(new HashMap<Long, List<Cluster>>());
+		}
+	}
+	
+	/***
+	 * Return the probability that two token sets with the given Jaccard similarity share a bucket
+	 */
+	public static double getRecall(double similarity, int rows, int bands) {
+		return 1 - Math.pow(1 - Math.pow(similarity, rows), bands);
+	}
+	
+	public double getThreshold() {
+		return threshold;
+	}
+	
+	public double getRecall() {
+		return recall;
+	}
+	
+	public int getRows() {
+		return rows;
+	}
+	
+	public int getBands() {
+		return bands;
+	}
+	
+	private Set<String> getTokens(Instance inst) {
+		Feature feature = inst.getFeature(featureName);
+		Set<String> tokens = new HashSet<String>();
+		
+		if (feature instanceof BagOfWordsFeature) {
+			for (FeatureFrequency freq : ((BagOfWordsFeature)feature).getValues()) {
+				tokens.add(freq.feature.getName());
+			}
+		}
+		else if (feature instanceof StringFeature && ((StringFeature)feature).getValue() != null) {
+			for (String token : ((StringFeature)feature).getValue().toLowerCase(Locale.ROOT).split("\\s+")) {
+				if (!token.isEmpty()) tokens.add(token);
+			}
+		}
+		else {
+			return null;
+		}
+		return tokens;
+	}
+	
+	/***
+	 * Return the bucket key of each band of the signature of the tokens
+	 */
+	private long[] getBandKeys(Set<String> tokens) {
+		long[] sig = minHash.signature(tokens);
+		long[] keys = new long[bands];
+		for (int b=0; b < bands; b++) {
+			long key = 1;
+			for (int r=b*rows; r < (b+1)*rows; r++) {
+				key = 31 * key + sig[r];
+			}
+			keys[b] = key;
+		}
+		return keys;
+	}
+	
+	private void add(Cluster cluster) {
+		addOrdinal(cluster);
+		
+		Set<String> tokens = getTokens(cluster);
+		if (tokens == null) {
+			unindexed.add(cluster);
+			bandKeys.put(cluster, null);
+			return;
+		}
+		
+		// empty token sets are not similar to anything
+		if (tokens.isEmpty()) {
+			bandKeys.put(cluster, new long[0]);
+			return;
+		}
+		
+		long[] keys = getBandKeys(tokens);
+		for (int b=0; b < bands; b++) {
+			List<Cluster> bucket = buckets.get(b).get(keys[b]);
+			if (bucket == null) {
+				bucket = new ArrayList<Cluster>(2);
+				buckets.get(b).put(keys[b], bucket);
+			}
+			bucket.add(cluster);
+		}
+		bandKeys.put(cluster, keys);
+	}
+	
+	private void remove(Cluster cluster) {
+		long[] keys = bandKeys.remove(cluster);
+		if (keys == null) {
+			unindexed.remove(cluster);
+			return;
+		}
+		
+		for (int b=0; b < keys.length; b++) {
+			List<Cluster> bucket = buckets.get(b).get(keys[b]);
+			bucket.remove(cluster);
+			if (bucket.isEmpty()) buckets.get(b).remove(keys[b]);
+		}
+	}
+
+	@Override
+	protected void clear() {
+		super.clear();
+		for (Map<Long, List<Cluster>> band : buckets) {
+			band.clear();
+		}
+		bandKeys.clear();
+	}
+
+	@Override
+	public void build(List<Cluster> clusters) {
+		clear();
+		
+		for (Cluster c : clusters) {
+			add(c);
+		}
+	}
+
+	@Override
+	public void update(Cluster cluster) {
+		if (bandKeys.containsKey(cluster)) remove(cluster);
+		add(cluster);
+	}
+	
+	private List<Cluster> getBucketed(Set<String> tokens) {
+		Set<Cluster> found = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+		found.addAll(unindexed);
+		
+		if (!tokens.isEmpty()) {
+			long[] keys = getBandKeys(tokens);
+			for (int b=0; b < bands; b++) {
+				List<Cluster> bucket = buckets.get(b).get(keys[b]);
+				if (bucket != null) found.addAll(bucket);
+			}
+		}
+		
+		List<Cluster> result = new ArrayList<Cluster>(found);
+		sortInIndexOrder(result);
+		return result;
+	}
+
+	@Override
+	public List<Cluster> getCandidates(Instance inst, double radius) {
+		Set<String> tokens = getTokens(inst);
+		
+		// the bands were only chosen to find clusters within the threshold
+		if (tokens == null || radius >= 1 || radius > threshold + EPSILON) return null;
+		
+		return getBucketed(tokens);
+	}
+
+	@Override
+	public List<Cluster> getNearestCandidates(Instance inst) {
+		Set<String> tokens = getTokens(inst);
+		if (tokens == null) return null;
+		
+		List<Cluster> result = getBucketed(tokens);
+		return (result.size() > unindexed.size()) ? result : null;
+	}
+}
@@ -24,9 +24,15 @@
  */
 package com.oculusinfo.ml.unsupervised.cluster.threshold;
 
+import java.util.List;
+
+import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterer;
 import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.canopy.CanopyFunction;
+import com.oculusinfo.ml.unsupervised.cluster.canopy.CanopyIndex;
 
 /***
  * This class implements a single pass threshold clustering algorithm.
@@ -54,12 +60,19 @@ import com.oculusinfo.ml.unsupervised.cluster.Cluster;
  * 
  * To speed up the clustering even faster, the firstCandidate option can be set to true which will halt the 
  * search for the best cluster after the first candidate is found.
+ * 
+ * For large numbers of clusters an optional canopy function can be set.  Each instance is then only
+ * compared against the clusters that share a canopy with it, as determined by the cheap canopy function.
+ * When a cluster index is also set, only the clusters that are both index candidates and share a canopy
+ * with the instance are compared.
  *  
  * @author slangevin
  *
  */
 public class ThresholdClusterer extends AbstractClusterer {
 	protected double threshold = 0.5; // default threshold
+	protected CanopyFunction canopy = null;
+	private CanopyIndex canopyIndex = null;
 	
 	public ThresholdClusterer() {
 		super(false, true, true);
@@ -77,10 +90,66 @@ public class ThresholdClusterer extends AbstractClusterer {
 		return threshold;
 	}
 	
+	/***
+	 * Set a canopy function to restrict the clusters each instance is compared against
+	 * 
+	 * @param canopy the canopy function or null to compare against all clusters
+	 */
+	public void setCanopy(CanopyFunction canopy) {
+		this.canopy = canopy;
+	}
+	
+	public CanopyFunction getCanopy() {
+		return canopy;
+	}
+	
+	@Override
+	protected ClusterResult doCluster(DataSet ds, List<Cluster> clusters) {
+		if (canopy == null) return super.doCluster(ds, clusters);
+		
+		// index any existing clusters by canopy
+		canopyIndex = new CanopyIndex(canopy);
+		for (Cluster c : clusters) {
+			canopyIndex.add(c);
+		}
+		try {
+			return super.doCluster(ds, clusters);
+		}
+		finally {
+			canopyIndex = null;
+		}
+	}
+	
+	@Override
+	protected List<Cluster> getCandidateClusters(Instance inst, List<Cluster> clusters) {
+		List<Cluster> candidates = super.getCandidateClusters(inst, clusters);
+		if (canopyIndex == null) return candidates;
+		
+		// no cluster index restricted the search so the canopy alone selects the candidates
+		if (candidates == clusters) return canopyIndex.getCandidates(inst, clusters);
+		
+		return canopyIndex.retainCandidates(inst, candidates);
+	}
+	
+	@Override
+	protected void clusterAssigned(Instance inst, Cluster cluster) {
+		super.clusterAssigned(inst, cluster);
+		if (canopyIndex == null) return;
+		
+		// index by the member and the updated centroid, which may have moved into a new canopy
+		canopyIndex.add(cluster, inst);
+		canopyIndex.update(cluster);
+	}
+	
 	@Override
 	protected boolean isCandidate(Instance inst, Cluster candidate,
 			double score, Cluster best, double bestScore) {
 		
 		return (score < threshold && score < bestScore);  // lower score less than threshold is better
 	}
+	
+	@Override
+	protected double getDistanceCutoff() {
+		return threshold;
+	}
 }
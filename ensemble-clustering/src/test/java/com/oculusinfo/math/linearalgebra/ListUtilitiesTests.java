@@ -56,4 +56,15 @@ public class ListUtilitiesTests {
         List<Double> base = Arrays.asList(0.0, 1.0, 2.0, 3.0, 4.0);
         Assert.assertEquals(base, ListUtilities.joinLists(base, Arrays.asList(0.0, 0.0, 0.0, 0.0, 0.0), EPSILON));
     }
+
+    @Test
+    public void testJoiningArrays () {
+        double[] base = {0.0, 1.0, 2.0, 3.0, 4.0};
+
+        Assert.assertTrue(Arrays.equals(new double[] {-1.0, 0.0, 1.0, 2.0, 2.5, 3.0, 4.0, 5.0},
+                                        ListUtilities.joinArrays(base, new double[] {-1.0, 2.0, 2.5, 5.0}, EPSILON)));
+        Assert.assertTrue(Arrays.equals(base, ListUtilities.joinArrays(base, new double[] {0.0, 0.0, 0.0}, EPSILON)));
+        Assert.assertTrue(Arrays.equals(new double[] {0.0, 0.5, 1.0, 1.5},
+                                        ListUtilities.joinArrays(new double[] {0.0, 1.0}, new double[] {0.5, 1.0, 1.5}, EPSILON)));
+    }
 }
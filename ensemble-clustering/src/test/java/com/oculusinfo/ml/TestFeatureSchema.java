@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.FeatureSchema;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.centroid.StringMedianCentroid;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+
+public class TestFeatureSchema {
+	double epsilon = 0.00001;
+	
+	private ThresholdClusterer createClusterer() {
+		ThresholdClusterer clusterer = new ThresholdClusterer();
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid.class, new EuclideanDistance(0.5));
+		clusterer.registerFeatureType("name", StringMedianCentroid.class, new EditDistance(0.5));
+		return clusterer;
+	}
+	
+	private Instance createInstance(FeatureSchema schema, String name, double x, double y) {
+		Instance inst = new Instance(name, schema);
+		NumericVectorFeature v = new NumericVectorFeature("point");
+		v.setValue(new double[] { x, y });
+		inst.addFeature(v);
+		StringFeature s = new StringFeature("name");
+		s.setValue(name);
+		inst.addFeature(s);
+		return inst;
+	}
+	
+	@Test
+	public void testSlotAccess() {
+		FeatureSchema schema = createClusterer().getFeatureSchema();
+		Instance inst = createInstance(schema, "dog", 1, 2);
+		
+		StringFeature label = new StringFeature("label");
+		label.setValue("animal");
+		inst.addFeature(label);
+		
+		assertEquals(3, inst.numFeatures());
+		assertSame(inst.getFeature("point"), inst.getFeature(schema.getSlot("point")));
+		assertSame(inst.getFeature("name"), inst.getFeature(schema.getSlot("name")));
+		assertSame(label, inst.getFeature("label"));
+		assertEquals(-1, schema.getSlot("label"));
+		assertEquals(3, inst.getFeatures().size());
+		
+		inst.removeFeature("name");
+		assertNull(inst.getFeature(schema.getSlot("name")));
+		assertEquals(2, inst.numFeatures());
+		
+		inst.setSchema(null);
+		assertNull(inst.getSchema());
+		assertTrue(inst.containsFeature("point"));
+		assertTrue(inst.containsFeature("label"));
+	}
+	
+	@Test
+	public void testDistanceMatchesNamedAccess() {
+		ThresholdClusterer clusterer = createClusterer();
+		FeatureSchema schema = clusterer.getFeatureSchema();
+		
+		Instance a1 = createInstance(schema, "dog", 0.1, 0.2);
+		Instance b1 = createInstance(schema, "doggie", 0.3, 0.1);
+		Instance a2 = createInstance(null, "dog", 0.1, 0.2);
+		Instance b2 = createInstance(null, "doggie", 0.3, 0.1);
+		
+		double d = clusterer.distance(a2, b2);
+		assertEquals(d, clusterer.distance(a1, b1), epsilon);
+		assertEquals(d, clusterer.distance(a1, b2), epsilon);
+		
+		Cluster c = clusterer.createCluster();
+		assertSame(schema, c.getSchema());
+		c.add(b2);
+		c.updateCentroid();
+		assertEquals(clusterer.distance(a2, c), clusterer.distance(a1, c), epsilon);
+	}
+	
+	private Object copy(Object obj) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+	
+	@Test
+	public void testDeserializedSchema() throws Exception {
+		ThresholdClusterer clusterer = createClusterer();
+		FeatureSchema schema = clusterer.getFeatureSchema();
+		
+		Instance a1 = createInstance(schema, "dog", 0.1, 0.2);
+		Instance b1 = createInstance(schema, "doggie", 0.3, 0.1);
+		Instance a2 = (Instance)copy(a1);
+		
+		// a deserialized schema is a different object with the same slots
+		assertNotSame(schema, a2.getSchema());
+		assertEquals(schema, a2.getSchema());
+		assertEquals(schema.hashCode(), a2.getSchema().hashCode());
+		assertTrue(clusterer.getDistancePlan().isComplete(a2));
+		assertEquals(clusterer.distance(a1, b1), clusterer.distance(a2, b1), epsilon);
+		
+		assertFalse(schema.equals(new FeatureSchema(Arrays.asList("name", "point", "label"))));
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.centroid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.centroid.StringMedianCentroid;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+
+public class TestStringMedianCentroid {
+	private static final String[] VALUES = { "kitten", "sitten", "sitting", "mitten", "kitchen", "bitten", "sittin", "smitten" };
+	
+	double epsilon = 0.00001;
+	
+	private StringFeature feature(String value) {
+		StringFeature f = new StringFeature("name");
+		f.setValue(value);
+		return f;
+	}
+	
+	private double sum(String value, List<StringFeature> members) {
+		double sum = 0;
+		for (StringFeature f : members) {
+			sum += EditDistance.getNormLevenshteinDistance(value, f.getValue());
+		}
+		return sum;
+	}
+	
+	private void assertMedian(StringMedianCentroid centroid, List<StringFeature> members) {
+		double best = Double.MAX_VALUE;
+		for (StringFeature f : members) {
+			best = Math.min(best, sum(f.getValue(), members));
+		}
+		// with fewer members than reference and test points the approximation is exact
+		Assert.assertEquals(best, sum(centroid.getCentroid().getValue(), members), epsilon);
+	}
+	
+	private StringMedianCentroid newCentroid() {
+		StringMedianCentroid centroid = new StringMedianCentroid();
+		centroid.setName("name");
+		return centroid;
+	}
+	
+	@Test
+	public void testAddRemove() {
+		StringMedianCentroid centroid = newCentroid();
+		List<StringFeature> members = new ArrayList<StringFeature>();
+		
+		Assert.assertEquals("", centroid.getCentroid().getValue());
+		
+		for (String value : VALUES) {
+			StringFeature f = feature(value);
+			members.add(f);
+			centroid.add(f);
+		}
+		assertMedian(centroid, members);
+		
+		for (int i=0; i < 3; i++) {
+			centroid.remove(members.remove(0));
+		}
+		assertMedian(centroid, members);
+		
+		Assert.assertEquals(members.size(), centroid.getAggregatableCentroid().size());
+	}
+	
+	@Test
+	public void testZeroUpdateFraction() {
+		StringMedianCentroid centroid = newCentroid();
+		centroid.setUpdateFraction(0);
+		List<StringFeature> members = new ArrayList<StringFeature>();
+		
+		// every change must be reflected in the median
+		for (String value : VALUES) {
+			StringFeature f = feature(value);
+			members.add(f);
+			centroid.add(f);
+			assertMedian(centroid, members);
+		}
+		while (members.size() > 1) {
+			centroid.remove(members.remove(members.size() - 1));
+			assertMedian(centroid, members);
+		}
+	}
+	
+	@Test
+	public void testCachedMedian() {
+		StringMedianCentroid centroid = newCentroid();
+		centroid.setUpdateFraction(1);
+		
+		for (int i=0; i < 4; i++) {
+			centroid.add(feature(VALUES[i]));
+		}
+		String median = centroid.getCentroid().getValue();
+		
+		// a single far away member is below the update fraction so the cached median is kept
+		centroid.add(feature("zzzzzzzzzzzz"));
+		Assert.assertEquals(median, centroid.getCentroid().getValue());
+	}
+	
+	@Test
+	public void testRemoveMedian() {
+		StringMedianCentroid centroid = newCentroid();
+		// never recompute because of the update fraction alone
+		centroid.setUpdateFraction(Double.MAX_VALUE);
+		List<StringFeature> members = new ArrayList<StringFeature>();
+		
+		for (String value : VALUES) {
+			StringFeature f = feature(value);
+			members.add(f);
+			centroid.add(f);
+		}
+		String median = centroid.getCentroid().getValue();
+		
+		for (StringFeature f : members) {
+			if (f.getValue().equals(median)) {
+				members.remove(f);
+				centroid.remove(f);
+				break;
+			}
+		}
+		Assert.assertFalse(median.equals(centroid.getCentroid().getValue()));
+		assertMedian(centroid, members);
+	}
+	
+	@Test
+	public void testExecutor() {
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			StringMedianCentroid centroid = newCentroid();
+			centroid.setParallelThreshold(1);
+			centroid.setExecutor(exec);
+			Assert.assertSame(exec, centroid.getExecutor());
+			
+			List<StringFeature> members = new ArrayList<StringFeature>();
+			for (String value : VALUES) {
+				StringFeature f = feature(value);
+				members.add(f);
+				centroid.add(f);
+			}
+			assertMedian(centroid, members);
+		}
+		finally {
+			exec.shutdown();
+		}
+	}
+}
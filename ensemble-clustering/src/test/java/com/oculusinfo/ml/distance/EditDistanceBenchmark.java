@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import java.util.Random;
+
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+
+/***
+ * Compares the time to calculate the normalized Levenshtein distance of short strings with the 
+ * bit-parallel calculation used by EditDistance against the dynamic programming calculation it 
+ * replaced.  Run from main() with an optional seed, number of strings and number of rounds.
+ * 
+ * @author slangevin
+ *
+ */
+public class EditDistanceBenchmark {
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+	
+	// the two row dynamic programming calculation used before the bit-parallel calculation
+	private static double getDPNormLevenshteinDistance(String s, String t) {
+		int n = s.length();
+		int m = t.length();
+		
+		if (n == 0) {
+			return m;
+		} else if (m == 0) {
+			return n;
+		}
+		
+		int p[] = new int[n+1];
+		int d[] = new int[n+1];
+		int _d[];
+		
+		for (int i = 0; i<=n; i++) {
+			p[i] = i;
+		}
+		for (int j = 1; j<=m; j++) {
+			char t_j = t.charAt(j-1);
+			d[0] = j;
+			
+			for (int i=1; i<=n; i++) {
+				int cost = s.charAt(i-1)==t_j ? 0 : 1;
+				d[i] = Math.min(Math.min(d[i-1]+1, p[i]+1),  p[i-1]+cost);
+			}
+			_d = p;
+			p = d;
+			d = _d;
+		}
+		return ( (double) p[n] / Math.max(n, m) );
+	}
+	
+	// name like strings of 4 to 40 characters, half of them edited copies of another string
+	private static String[] createStrings(Random rnd, int count) {
+		String[] strings = new String[count];
+		for (int i=0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			if (i > 0 && rnd.nextBoolean()) {
+				sb.append(strings[rnd.nextInt(i)]);
+				int edits = 1 + rnd.nextInt(3);
+				for (int e=0; e < edits && sb.length() > 1; e++) {
+					sb.setCharAt(rnd.nextInt(sb.length()), ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+				}
+			}
+			else {
+				int length = 4 + rnd.nextInt(37);
+				for (int c=0; c < length; c++) {
+					sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+				}
+			}
+			strings[i] = sb.toString();
+		}
+		return strings;
+	}
+	
+	private static double time(String[] strings, boolean bitParallel, double[] results) {
+		long start = System.nanoTime();
+		int idx = 0;
+		for (int i=0; i < strings.length; i++) {
+			for (int j=0; j < strings.length; j++) {
+				results[idx++] = bitParallel ? EditDistance.getNormLevenshteinDistance(strings[i], strings[j]) : 
+											   getDPNormLevenshteinDistance(strings[i], strings[j]);
+			}
+		}
+		return (double)(System.nanoTime() - start) / results.length;
+	}
+	
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 1;
+		int count = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+		
+		String[] strings = createStrings(new Random(seed), count);
+		double[] dp = new double[count * count];
+		double[] bp = new double[count * count];
+		
+		// warm up both calculations before timing them
+		time(strings, false, dp);
+		time(strings, true, bp);
+		
+		double dpTime = 0, bpTime = 0;
+		for (int r=0; r < rounds; r++) {
+			dpTime += time(strings, false, dp);
+			bpTime += time(strings, true, bp);
+		}
+		
+		for (int i=0; i < dp.length; i++) {
+			if (dp[i] != bp[i]) {
+				throw new IllegalStateException("Distances differ for " + strings[i / count] + " and " + strings[i % count]);
+			}
+		}
+		
+		System.out.println("Pairs: " + dp.length + ", rounds: " + rounds);
+		System.out.println("Dynamic programming (ns/pair): " + (dpTime / rounds));
+		System.out.println("Bit-parallel (ns/pair): " + (bpTime / rounds));
+		System.out.println("Speed up: " + (dpTime / bpTime));
+	}
+}
@@ -32,6 +32,7 @@ import org.junit.Test;
 
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
 import com.oculusinfo.ml.feature.bagofwords.distance.EditDistance;
+import com.oculusinfo.ml.feature.bagofwords.distance.EditDistanceCache;
 
 public class TestBagOfWordsEditDistance {
 	double epsilon = 0.00001;
@@ -231,4 +232,66 @@ public class TestBagOfWordsEditDistance {
 		System.out.println(distance);
 		Assert.assertTrue(isEqual(distance, 0.555556));  //0.5714 + 0.4286 + 0.666667 / 3
 	}
+	
+	@Test
+	public void testCache() {
+		BagOfWordsFeature t1 = new BagOfWordsFeature();
+		t1.incrementValue("dog");
+		t1.incrementValue("food");
+		t1.incrementValue("house");
+		
+		BagOfWordsFeature t2 = new BagOfWordsFeature();
+		t2.incrementValue("dogs");
+		t2.incrementValue("fool");
+		t2.incrementValue("mouse");
+		t2.incrementValue("yard");
+		
+		EditDistanceCache cache = new EditDistanceCache(100, 1024 * 1024);
+		EditDistance cached = new EditDistance(1, cache);
+		double expected = new EditDistance().distance(t1, t2);
+		
+		Assert.assertTrue(isEqual(cached.distance(t1, t2), expected));
+		Assert.assertEquals(0, cache.getHitCount());
+		Assert.assertEquals(12, cache.getMissCount());
+		
+		// the pairs are shared in both directions
+		Assert.assertTrue(isEqual(cached.distance(t2, t1), expected));
+		Assert.assertEquals(12, cache.getHitCount());
+		Assert.assertEquals(12, cache.size());
+		
+		// the cache is bounded
+		EditDistanceCache small = new EditDistanceCache(16, 1024 * 1024);
+		for (int i=0; i < 1000; i++) {
+			small.getDistance("token" + i, "token" + (i+1));
+		}
+		Assert.assertTrue(small.size() <= 16);
+	}
+	
+	@Test(timeout=60000)
+	public void testCacheConcurrentClear() throws InterruptedException {
+		final EditDistanceCache cache = new EditDistanceCache(64, 1024 * 1024);
+		
+		Thread[] threads = new Thread[4];
+		for (int t=0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i=0; i < 20000; i++) {
+						cache.getDistance("token" + (i + offset), "token" + (i % 97));
+						if (offset == 0 && i % 50 == 0) cache.clear();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		// the counters have not drifted from the cached entries
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0, cache.getBytes());
+	}
 }
@@ -24,6 +24,10 @@
  */
 package com.oculusinfo.ml.distance;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Collections;
 
 import junit.framework.Assert;
@@ -31,6 +35,7 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.TermDictionary;
 import com.oculusinfo.ml.feature.bagofwords.distance.CosineDistance;
 
 public class TestCosineDistance {
@@ -371,4 +376,89 @@ double epsilon = 0.00001;
 		
 		Assert.assertTrue(isEqual(d1, d2));
 	}
+	
+	@Test
+	public void testCompact() {
+		BagOfWordsFeature t1 = new BagOfWordsFeature();
+		t1.setCount("dog", 5);
+		t1.setCount("food", 10);
+		t1.setCount("house", 3);
+		t1.setCount("walk", 2);
+		
+		BagOfWordsFeature t2 = new BagOfWordsFeature();
+		t2.setCount("cat", 5);
+		t2.setCount("food", 10);
+		t2.setCount("house", 3);
+		t2.setCount("sand", 5);
+		t2.setCount("box", 1);
+		
+		CosineDistance d = new CosineDistance();
+		double expected = d.distance(t1, t2);
+		
+		TermDictionary dictionary = new TermDictionary();
+		t1.compact(dictionary);
+		t2.compact(dictionary);
+		Assert.assertTrue(t1.isCompact() && t2.isCompact());
+		Assert.assertTrue(isEqual(d.distance(t1, t2), expected));
+		Assert.assertTrue(isEqual(d.distance(t2, t1), expected));
+		Assert.assertEquals(10, t1.getCount("food").frequency);
+		Assert.assertNull(t1.getCount("cat"));
+		
+		// reading the frequency table of a compact bag returns a copy and leaves it compact
+		Assert.assertEquals(4, t1.getFreqTable().getAll().size());
+		t1.getFreqTable().incrementBy(t1.getCount("dog").feature, 1);
+		Assert.assertTrue(t1.isCompact());
+		Assert.assertEquals(5, t1.getCount("dog").frequency);
+		
+		// modifying a compact bag expands it
+		t1.incrementValue("walk");
+		Assert.assertFalse(t1.isCompact());
+		Assert.assertEquals(3, t1.getCount("walk").frequency);
+	}
+	
+	@Test
+	public void testSerializeCompact() throws Exception {
+		BagOfWordsFeature t1 = new BagOfWordsFeature("words");
+		t1.setCount("dog", 5);
+		t1.setCount("food", 10);
+		t1.compact(new TermDictionary());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(t1);
+		out.close();
+		
+		// serializing a compact bag writes its terms without expanding it
+		Assert.assertTrue(t1.isCompact());
+		
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		BagOfWordsFeature t2 = (BagOfWordsFeature)in.readObject();
+		Assert.assertFalse(t2.isCompact());
+		Assert.assertEquals("words", t2.getName());
+		Assert.assertEquals(5, t2.getCount("dog").frequency);
+		Assert.assertEquals(10, t2.getCount("food").frequency);
+	}
+	
+	@Test
+	public void testCachedNorm() {
+		BagOfWordsFeature t1 = new BagOfWordsFeature();
+		t1.setCount("dog", 3);
+		t1.setCount("food", 4);
+		
+		BagOfWordsFeature t2 = new BagOfWordsFeature();
+		t2.setCount("dog", 1);
+		
+		CosineDistance d = new CosineDistance();
+		Assert.assertTrue(isEqual(t1.getNorm(), 5));
+		Assert.assertTrue(isEqual(d.distance(t1, t2), 0.4));
+		
+		// the cached norm is invalidated when the bag changes
+		t1.setCount("food", 0);
+		Assert.assertTrue(isEqual(t1.getNorm(), 3));
+		Assert.assertTrue(isEqual(d.distance(t1, t2), 0));
+		
+		// and when the frequency table is changed directly
+		t1.getFreqTable().incrementBy(t1.getCount("dog").feature, 1);
+		Assert.assertTrue(isEqual(t1.getNorm(), 4));
+	}
 }
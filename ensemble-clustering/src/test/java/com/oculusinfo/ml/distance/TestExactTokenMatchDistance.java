@@ -31,6 +31,7 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.TermDictionary;
 import com.oculusinfo.ml.feature.bagofwords.distance.ExactTokenMatchDistance;
 
 public class TestExactTokenMatchDistance {
@@ -360,4 +361,37 @@ double epsilon = 0.00001;
 		
 		Assert.assertTrue(isEqual(d1, d2));
 	}
+	
+	@Test
+	public void testCompact() {
+		BagOfWordsFeature t1 = new BagOfWordsFeature();
+		t1.setCount("dog", 5);
+		t1.setCount("food", 10);
+		t1.setCount("house", 3);
+		t1.setCount("walk", 2);
+		
+		BagOfWordsFeature t2 = new BagOfWordsFeature();
+		t2.setCount("cat", 5);
+		t2.setCount("food", 10);
+		t2.setCount("house", 3);
+		t2.setCount("sand", 5);
+		t2.setCount("box", 1);
+		
+		ExactTokenMatchDistance d = new ExactTokenMatchDistance();
+		double expected = d.distance(t1, t2);
+		
+		TermDictionary dictionary = new TermDictionary();
+		t1.compact(dictionary);
+		t2.compact(dictionary);
+		Assert.assertTrue(t1.isCompact() && t2.isCompact());
+		Assert.assertTrue(isEqual(d.distance(t1, t2), expected));
+		Assert.assertTrue(isEqual(d.distance(t2, t1), expected));
+		Assert.assertEquals(10, t1.getCount("food").frequency);
+		Assert.assertNull(t1.getCount("cat"));
+		
+		// modifying a compact bag expands it
+		t1.incrementValue("walk");
+		Assert.assertFalse(t1.isCompact());
+		Assert.assertEquals(3, t1.getCount("walk").frequency);
+	}
 }
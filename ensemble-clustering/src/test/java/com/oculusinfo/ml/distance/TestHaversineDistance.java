@@ -27,6 +27,7 @@ package com.oculusinfo.ml.distance;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
+import java.util.Random;
 import org.junit.Test;
 
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
@@ -380,4 +381,32 @@ public class TestHaversineDistance {
 		d2 = d.aveMinDistance(Collections.singletonList(t2), Collections.singletonList(t1));
 		assertTrue(isEqual(d1, d2));
 	}
+	
+	@Test
+	public void testBoundedDistance() {
+		Random rnd = new Random(3);
+		HaversineDistance d = new HaversineDistance(1);
+		
+		for (int i=0; i < 1000; i++) {
+			GeoSpatialFeature t1 = new GeoSpatialFeature();
+			t1.setValue(rnd.nextDouble() * 180 - 90, rnd.nextDouble() * 360 - 180);
+			GeoSpatialFeature t2 = new GeoSpatialFeature();
+			t2.setValue(rnd.nextDouble() * 180 - 90, rnd.nextDouble() * 360 - 180);
+			
+			// the haversine formula on latitude and longitude
+			double dLat = Math.toRadians(t2.getLatitude() - t1.getLatitude());
+			double dLng = Math.toRadians(t2.getLongitude() - t1.getLongitude());
+			double a = Math.sin(dLat/2) * Math.sin(dLat/2) + Math.cos(Math.toRadians(t1.getLatitude())) * Math.cos(Math.toRadians(t2.getLatitude())) * Math.sin(dLng/2) * Math.sin(dLng/2);
+			double expected = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a)) / Math.PI;
+			
+			double distance = d.distance(t1, t2);
+			assertTrue(isEqual(distance, expected));
+			
+			// within the cutoff the bounded distance is exact, beyond it is greater than the cutoff
+			double cutoff = rnd.nextDouble();
+			double bounded = d.distance(t1, t2, cutoff);
+			if (distance <= cutoff) assertTrue(bounded == distance);
+			else assertTrue(bounded > cutoff);
+		}
+	}
 }
@@ -25,6 +25,7 @@
 package com.oculusinfo.ml.distance;
 
 import java.util.Collections;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -131,6 +132,108 @@ public class TestStringEditDistance {
 		Assert.assertTrue(isEqual(distance, 0.75));
 	}
 	
+	@Test
+	public void testBoundedDistance() {
+		String[] words = {"cats", "dogs", "dog", "doggie", "caaaaats", "Sacramento", "Reno/Tahoe and Visiting Las Vegas"};
+		double[] cutoffs = {0, 0.1, 0.25, 0.5, 0.75, 1.0, Double.MAX_VALUE};
+		
+		for (String s : words) {
+			for (String t : words) {
+				double exact = EditDistance.getNormLevenshteinDistance(s, t);
+				for (double cutoff : cutoffs) {
+					double bounded = EditDistance.getNormLevenshteinDistance(s, t, cutoff);
+					if (exact <= cutoff) {
+						Assert.assertTrue(isEqual(bounded, exact));
+					}
+					else {
+						Assert.assertTrue(bounded > cutoff);
+					}
+				}
+			}
+		}
+	}
+	
+	private static int levenshtein(String s, String t) {
+		int[][] d = new int[s.length()+1][t.length()+1];
+		for (int i=0; i <= s.length(); i++) d[i][0] = i;
+		for (int j=0; j <= t.length(); j++) d[0][j] = j;
+		for (int i=1; i <= s.length(); i++) {
+			for (int j=1; j <= t.length(); j++) {
+				int cost = (s.charAt(i-1) == t.charAt(j-1)) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i-1][j]+1, d[i][j-1]+1), d[i-1][j-1]+cost);
+			}
+		}
+		return d[s.length()][t.length()];
+	}
+	
+	@Test
+	public void testBitParallelDistance() {
+		// strings on either side of the 64 character word size, including characters beyond Latin-1
+		char[] alphabet = {'a', 'b', 'c', 'd', '\u00e9', '\u4e2d'};
+		Random rnd = new Random(42);
+		
+		for (int trial=0; trial < 2000; trial++) {
+			StringBuilder s = new StringBuilder(), t = new StringBuilder();
+			int n = 1 + rnd.nextInt(80), m = 1 + rnd.nextInt(80);
+			for (int i=0; i < n; i++) s.append(alphabet[rnd.nextInt(alphabet.length)]);
+			for (int i=0; i < m; i++) t.append(alphabet[rnd.nextInt(alphabet.length)]);
+			
+			double expected = (double)levenshtein(s.toString(), t.toString()) / Math.max(n, m);
+			Assert.assertEquals(expected, EditDistance.getNormLevenshteinDistance(s.toString(), t.toString()));
+			
+			double cutoff = rnd.nextDouble();
+			double bounded = EditDistance.getNormLevenshteinDistance(s.toString(), t.toString(), cutoff);
+			if (expected <= cutoff) {
+				Assert.assertEquals(expected, bounded);
+			}
+			else {
+				Assert.assertTrue(bounded > cutoff);
+			}
+		}
+	}
+	
+	@Test
+	public void testBandedDistance() {
+		// strings longer than 64 characters use the banded calculation, and a few random edits 
+		// of a common string put the exact distance on either side of the cutoff
+		char[] alphabet = {'a', 'b', 'c', 'd', 'e'};
+		Random rnd = new Random(7);
+		
+		for (int trial=0; trial < 2000; trial++) {
+			int n = 65 + rnd.nextInt(100);
+			StringBuilder s = new StringBuilder();
+			for (int i=0; i < n; i++) s.append(alphabet[rnd.nextInt(alphabet.length)]);
+			
+			StringBuilder t = new StringBuilder(s);
+			int edits = rnd.nextInt(20);
+			for (int e=0; e < edits; e++) {
+				int i = rnd.nextInt(t.length());
+				switch (rnd.nextInt(3)) {
+				case 0: t.setCharAt(i, alphabet[rnd.nextInt(alphabet.length)]); break;
+				case 1: t.insert(i, alphabet[rnd.nextInt(alphabet.length)]); break;
+				default: t.deleteCharAt(i); break;
+				}
+			}
+			if (t.length() <= 64) continue;
+			
+			int exact = levenshtein(s.toString(), t.toString());
+			double norm = Math.max(s.length(), t.length());
+			
+			// cutoffs exactly at, one edit below and one edit above the exact distance
+			for (int k = exact - 1; k <= exact + 1; k++) {
+				if (k < 0) continue;
+				double cutoff = k / norm;
+				double bounded = EditDistance.getNormLevenshteinDistance(s.toString(), t.toString(), cutoff);
+				if (exact <= k) {
+					Assert.assertEquals(exact / norm, bounded);
+				}
+				else {
+					Assert.assertTrue(bounded > cutoff);
+				}
+			}
+		}
+	}
+	
 	@Test 
 	public void testDistance4() {
 		StringFeature t1 = new StringFeature();
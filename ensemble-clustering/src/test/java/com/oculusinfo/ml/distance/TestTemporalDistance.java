@@ -25,6 +25,10 @@
 package com.oculusinfo.ml.distance;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -35,6 +39,7 @@ import java.util.List;
 import org.junit.Test;
 
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+import com.oculusinfo.ml.feature.temporal.centroid.TemporalCentroid;
 import com.oculusinfo.ml.feature.temporal.distance.TemporalDistance;
 
 
@@ -975,4 +980,55 @@ public class TestTemporalDistance {
 		double d2 = d.aveMinDistance(set2, set1);
 		assertTrue(isEqual(d1, d2));
 	}
+
+	@Test
+	public void testPrimitiveTimes() throws Exception {
+		Date date1 = (new GregorianCalendar(2010, 01, 01)).getTime();
+		Date date2 = (new GregorianCalendar(2010, 02, 01)).getTime();
+		
+		TemporalFeature t1 = new TemporalFeature();
+		t1.setValue(date1, date2);
+		
+		TemporalFeature t2 = new TemporalFeature();
+		t2.setValue(date1.getTime(), date2.getTime());
+		
+		assertTrue(t2.getStart().equals(date1) && t2.getEnd().equals(date2));
+		assertTrue(isEqual(new TemporalDistance(1).distance(t1, t2), 0));
+		assertTrue(new TemporalFeature().getStart() == null);
+		
+		// the serialized form holds Dates
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(t1);
+		out.close();
+		TemporalFeature t3 = (TemporalFeature)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertTrue(t3.getStartTime() == date1.getTime() && t3.getEndTime() == date2.getTime());
+	}
+	
+	@Test
+	public void testUnsetTimes() {
+		Date date1 = (new GregorianCalendar(2010, 01, 01)).getTime();
+		Date date2 = (new GregorianCalendar(2010, 02, 01)).getTime();
+		
+		TemporalFeature t1 = new TemporalFeature();
+		t1.setValue(date1, date2);
+		
+		TemporalFeature t2 = new TemporalFeature();
+		t2.setStart(date1);
+		
+		// a range without an end is at the maximum distance from any range
+		assertTrue(isEqual(new TemporalDistance(1).distance(t1, t2), 1));
+		assertTrue(isEqual(new TemporalDistance(1).distance(t2, t1), 1));
+		assertTrue(isEqual(new TemporalDistance(1).distance(new TemporalFeature(), new TemporalFeature()), 1));
+		
+		// and can not be added to a centroid
+		TemporalCentroid centroid = new TemporalCentroid();
+		centroid.add(t1);
+		try {
+			centroid.add(t2);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
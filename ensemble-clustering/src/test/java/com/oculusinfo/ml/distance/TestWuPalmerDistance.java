@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.semantic.SemanticFeature;
+import com.oculusinfo.ml.feature.semantic.distance.Concept;
+import com.oculusinfo.ml.feature.semantic.distance.SemMFDistance;
+import com.oculusinfo.ml.feature.semantic.distance.TaxonomyIndex;
+import com.oculusinfo.ml.feature.semantic.distance.WuPalmerDistance;
+
+public class TestWuPalmerDistance {
+double epsilon = 0.00001;
+	
+	private boolean isEqual(double d1, double d2) {
+		return (Math.abs( d1 - d2 ) < epsilon );
+	}
+	
+	private Concept addChild(Concept parent, String name) {
+		Concept c = new Concept(name, parent);
+		parent.addChild(c);
+		return c;
+	}
+	
+	private SemanticFeature feature(String concept) {
+		SemanticFeature f = new SemanticFeature("type");
+		f.setValue(concept, "http://example.com/" + concept);
+		return f;
+	}
+	
+	private Concept animals() {
+		Concept root = new Concept("thing");
+		Concept animal = addChild(root, "animal");
+		Concept mammal = addChild(animal, "mammal");
+		addChild(mammal, "dog");
+		addChild(mammal, "cat");
+		addChild(animal, "bird");
+		addChild(root, "rock");
+		return root;
+	}
+	
+	@Test
+	public void testIdentical() {
+		WuPalmerDistance d = new WuPalmerDistance(animals());
+		Assert.assertTrue(isEqual(d.distance(feature("dog"), feature("dog")), 0));
+		
+		SemMFDistance s = new SemMFDistance(animals());
+		Assert.assertTrue(isEqual(s.distance(feature("dog"), feature("dog")), 0));
+	}
+	
+	@Test
+	public void testSiblings() {
+		WuPalmerDistance d = new WuPalmerDistance(animals());
+		
+		// lca of dog and cat is mammal at depth 3, both at depth 4
+		double distance = d.distance(feature("dog"), feature("Cat"));
+		Assert.assertTrue(isEqual(distance, 1.0 - 6.0 / 8.0));
+		
+		// lca of dog and rock is the root at depth 1
+		distance = d.distance(feature("dog"), feature("rock"));
+		Assert.assertTrue(isEqual(distance, 1.0 - 2.0 / 6.0));
+		
+		// concepts not in the taxonomy are the max distance
+		distance = d.distance(feature("dog"), feature("unicorn"));
+		Assert.assertTrue(isEqual(distance, 1));
+	}
+	
+	@Test
+	public void testCommonAncestor() {
+		Random rnd = new Random(7);
+		Concept root = new Concept("c0");
+		List<Concept> nodes = new ArrayList<Concept>();
+		nodes.add(root);
+		for (int i=1; i < 500; i++) {
+			nodes.add(addChild(nodes.get(rnd.nextInt(nodes.size())), "c" + i));
+		}
+		
+		TaxonomyIndex index = new TaxonomyIndex(root);
+		Assert.assertEquals(500, index.size());
+		
+		for (int i=0; i < 2000; i++) {
+			Concept x = nodes.get(rnd.nextInt(nodes.size()));
+			Concept y = nodes.get(rnd.nextInt(nodes.size()));
+			int lca = index.getCommonAncestor(index.getId(x.getName()), index.getId(y.getName()));
+			
+			Assert.assertEquals(x.findCommonAncestor(y).getName(), index.getConcept(lca).getName());
+			Assert.assertEquals(x.getDepth(), index.getDepth(index.getId(x.getName())));
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterIndex;
+
+/***
+ * Checks the candidates of a cluster index against a full scan of the clusters with the distance 
+ * function the index is built for.  Subclasses create the random centroids and queries.
+ * 
+ * @author slangevin
+ *
+ */
+public abstract class FullScanComparison<T extends Feature> {
+	private final String featureName;
+	private final DistanceFunction<T> distance;
+	
+	public FullScanComparison(String featureName, DistanceFunction<T> distance) {
+		this.featureName = featureName;
+		this.distance = distance;
+	}
+	
+	public String getFeatureName() {
+		return featureName;
+	}
+	
+	/***
+	 * Return a random centroid feature
+	 */
+	protected abstract T createFeature(Random rnd);
+	
+	/***
+	 * Return a random query feature, by default from the same distribution as the centroids
+	 */
+	protected T createQuery(Random rnd) {
+		return createFeature(rnd);
+	}
+	
+	/***
+	 * Assert that the candidates of the index contain every cluster within radius of inst
+	 * 
+	 * @param restricted true if the index must return fewer candidates than there are clusters
+	 * @return the number of clusters with the feature that are within radius
+	 */
+	@SuppressWarnings("unchecked")
+	public int assertContainsWithin(ClusterIndex index, List<Cluster> clusters, Instance inst, double radius, boolean restricted) {
+		List<Cluster> found = index.getCandidates(inst, radius);
+		if (restricted) {
+			Assert.assertNotNull(found);
+			Assert.assertTrue(found.size() < clusters.size());
+		}
+		if (found == null) return 0;  // a full scan finds everything
+		
+		Set<Cluster> candidates = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+		candidates.addAll(found);
+		
+		int within = 0;
+		T f = (T)inst.getFeature(featureName);
+		for (Cluster c : clusters) {
+			T cf = (T)c.getFeature(featureName);
+			if (cf == null || distance.distance(f, cf) <= radius) {
+				Assert.assertTrue(candidates.contains(c));
+				if (cf != null) within++;
+			}
+		}
+		return within;
+	}
+	
+	/***
+	 * Build the index over random clusters and a cluster without the feature, then compare the candidates 
+	 * of random queries at each radius with a full scan.  Between rounds some centroids are changed and 
+	 * clusters are added, and each is passed to update.  The index must restrict the search at the first radius.
+	 */
+	public void compare(ClusterIndex index, long seed, int numClusters, int numQueries, double[] radii) {
+		Random rnd = new Random(seed);
+		
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		for (int i=0; i < numClusters; i++) {
+			Cluster c = new Cluster();
+			c.addFeature(createFeature(rnd));
+			clusters.add(c);
+		}
+		clusters.add(new Cluster());
+		index.build(clusters);
+		
+		int within = 0;
+		for (int round=0; round < 3; round++) {
+			for (int q=0; q < numQueries; q++) {
+				Instance inst = new Instance();
+				inst.addFeature(createQuery(rnd));
+				for (int r=0; r < radii.length; r++) {
+					within += assertContainsWithin(index, clusters, inst, radii[r], r == 0);
+				}
+			}
+			
+			for (int i=0; i < numClusters / 10; i++) {
+				Cluster c = clusters.get(rnd.nextInt(clusters.size()));
+				c.addFeature(createFeature(rnd));
+				index.update(c);
+				
+				Cluster added = new Cluster();
+				added.addFeature(createFeature(rnd));
+				clusters.add(added);
+				index.update(added);
+			}
+		}
+		
+		// the comparison is not vacuous, some clusters were within the radii
+		Assert.assertTrue(within > 0);
+	}
+}
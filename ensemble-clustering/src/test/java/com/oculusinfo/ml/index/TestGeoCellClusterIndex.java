@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.spatial.index.GeoCellClusterIndex;
+
+public class TestGeoCellClusterIndex {
+	
+	private GeoSpatialFeature geo(double lat, double lon) {
+		GeoSpatialFeature f = new GeoSpatialFeature("location");
+		f.setValue(lat, lon);
+		return f;
+	}
+	
+	private GeoSpatialFeature randomGeo(Random rnd) {
+		// bias half the points towards the poles and the anti-meridian where the cells wrap
+		switch (rnd.nextInt(4)) {
+		case 0:
+			return geo((rnd.nextBoolean() ? 1 : -1) * (85 + 5 * rnd.nextDouble()), 360 * rnd.nextDouble() - 180);
+		case 1:
+			return geo(180 * rnd.nextDouble() - 90, (rnd.nextBoolean() ? 1 : -1) * (175 + 5 * rnd.nextDouble()));
+		default:
+			return geo(180 * rnd.nextDouble() - 90, 360 * rnd.nextDouble() - 180);
+		}
+	}
+	
+	@Test
+	public void testCandidatesMatchFullScan() {
+		// radii are normalized central angles, 0.01 is about 200 km
+		new FullScanComparison<GeoSpatialFeature>("location", new HaversineDistance(1.0)) {
+			@Override
+			protected GeoSpatialFeature createFeature(Random rnd) {
+				return randomGeo(rnd);
+			}
+		}.compare(new GeoCellClusterIndex("location", 1.0), 1, 2000, 300, new double[] { 0.001, 0.005, 0.01, 0.05 });
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+import com.oculusinfo.ml.feature.temporal.distance.TemporalDistance;
+import com.oculusinfo.ml.feature.temporal.index.IntervalTreeClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+public class TestIntervalTreeClusterIndex {
+	private static final long DAY = 86400000L;
+	
+	private TemporalFeature range(long start, long end) {
+		TemporalFeature f = new TemporalFeature("time");
+		f.setValue(start, end);
+		return f;
+	}
+	
+	private TemporalFeature randomRange(Random rnd) {
+		long start = (long)(rnd.nextDouble() * 1000 * DAY);
+		return range(start, start + (long)(rnd.nextDouble() * 30 * DAY));
+	}
+	
+	private Instance query(TemporalFeature f) {
+		Instance inst = new Instance();
+		inst.addFeature(f);
+		return inst;
+	}
+	
+	private Cluster cluster(TemporalFeature f) {
+		Cluster c = new Cluster();
+		c.addFeature(f);
+		return c;
+	}
+	
+	@Test
+	public void testCandidatesMatchFullScan() {
+		new FullScanComparison<TemporalFeature>("time", new TemporalDistance(1.0)) {
+			@Override
+			protected TemporalFeature createFeature(Random rnd) {
+				// some centroids have no end and can not be indexed
+				if (rnd.nextInt(20) == 0) {
+					TemporalFeature f = new TemporalFeature("time");
+					f.setStartTime((long)(rnd.nextDouble() * 1000 * DAY));
+					return f;
+				}
+				return randomRange(rnd);
+			}
+			
+			@Override
+			protected TemporalFeature createQuery(Random rnd) {
+				return randomRange(rnd);
+			}
+		}.compare(new IntervalTreeClusterIndex("time"), 1, 1000, 200, new double[] { 0.2, 0.5, 0.9 });
+	}
+	
+	@Test
+	public void testUnboundedQuery() {
+		IntervalTreeClusterIndex index = new IntervalTreeClusterIndex("time");
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		clusters.add(cluster(range(0, DAY)));
+		index.build(clusters);
+		
+		// a query without an end can not be searched so every cluster must be scanned
+		TemporalFeature f = new TemporalFeature("time");
+		f.setStartTime(0);
+		Assert.assertNull(index.getCandidates(query(f), 0.5));
+		Assert.assertNull(index.getNearestCandidates(query(f)));
+	}
+	
+	@Test
+	public void testTolerance() {
+		Random rnd = new Random(2);
+		long tolerance = 2 * DAY;
+		
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		for (int i=0; i < 500; i++) {
+			clusters.add(cluster(randomRange(rnd)));
+		}
+		IntervalTreeClusterIndex exact = new IntervalTreeClusterIndex("time");
+		IntervalTreeClusterIndex tolerant = new IntervalTreeClusterIndex("time", tolerance);
+		exact.build(clusters);
+		tolerant.build(clusters);
+		
+		int near = 0;
+		for (int q=0; q < 200; q++) {
+			TemporalFeature f = randomRange(rnd);
+			List<Cluster> exactCandidates = exact.getCandidates(query(f), 0.5);
+			List<Cluster> tolerantCandidates = tolerant.getCandidates(query(f), 0.5);
+			
+			for (Cluster c : clusters) {
+				TemporalFeature cf = (TemporalFeature)c.getFeature("time");
+				boolean overlaps = (cf.getStartTime() <= f.getEndTime() && cf.getEndTime() >= f.getStartTime());
+				boolean nearlyOverlaps = (cf.getStartTime() <= f.getEndTime() + tolerance && cf.getEndTime() >= f.getStartTime() - tolerance);
+				
+				// ranges that nearly overlap are only returned with the tolerance
+				Assert.assertEquals(overlaps, exactCandidates.contains(c));
+				Assert.assertEquals(nearlyOverlaps, tolerantCandidates.contains(c));
+				if (nearlyOverlaps && !overlaps) near++;
+			}
+		}
+		Assert.assertTrue(near > 0);
+	}
+	
+	@Test
+	public void testUpdatedClusters() {
+		IntervalTreeClusterIndex index = new IntervalTreeClusterIndex("time");
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		for (int i=0; i < 100; i++) {
+			clusters.add(cluster(range(i * 10 * DAY, i * 10 * DAY + DAY)));
+		}
+		index.build(clusters);
+		
+		// move a cluster so its tree entry is stale
+		Cluster moved = clusters.get(0);
+		moved.addFeature(range(5000 * DAY, 5001 * DAY));
+		index.update(moved);
+		
+		Assert.assertFalse(index.getCandidates(query(range(0, DAY)), 0.5).contains(moved));
+		Assert.assertTrue(index.getCandidates(query(range(5000 * DAY, 5001 * DAY)), 0.5).contains(moved));
+		
+		// a cluster that loses its range is always a candidate
+		Cluster cleared = clusters.get(1);
+		cleared.addFeature(new TemporalFeature("time"));
+		index.update(cleared);
+		Assert.assertTrue(index.getCandidates(query(range(3000 * DAY, 3001 * DAY)), 0.5).contains(cleared));
+		
+		// a new cluster is found before the tree is rebuilt
+		Cluster added = cluster(range(7000 * DAY, 7001 * DAY));
+		index.update(added);
+		Assert.assertTrue(index.getCandidates(query(range(7000 * DAY, 7001 * DAY)), 0.5).contains(added));
+	}
+	
+	@Test
+	public void testNearestCandidates() {
+		IntervalTreeClusterIndex index = new IntervalTreeClusterIndex("time");
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		for (int i=0; i < 100; i++) {
+			clusters.add(cluster(range(i * 10 * DAY, i * 10 * DAY + 5 * DAY)));
+		}
+		Cluster missing = new Cluster();
+		clusters.add(missing);
+		index.build(clusters);
+		
+		// every cluster is at a distance of 1 when nothing overlaps so the index can not restrict the search
+		Assert.assertNull(index.getNearestCandidates(query(range(5000 * DAY, 5001 * DAY))));
+		Assert.assertNull(index.getNearestCandidates(query(range(6 * DAY, 9 * DAY))));
+		
+		// otherwise the overlapping clusters are returned with those that can not be indexed
+		TemporalDistance distance = new TemporalDistance(1.0);
+		TemporalFeature f = range(23 * DAY, 32 * DAY);
+		List<Cluster> candidates = index.getNearestCandidates(query(f));
+		Assert.assertNotNull(candidates);
+		Assert.assertTrue(candidates.contains(missing));
+		
+		Cluster nearest = null;
+		double min = Double.MAX_VALUE;
+		for (Cluster c : clusters) {
+			if (c == missing) continue;
+			double d = distance.distance(f, (TemporalFeature)c.getFeature("time"));
+			if (d < min) {
+				min = d;
+				nearest = c;
+			}
+		}
+		Assert.assertTrue(min < 1);
+		Assert.assertTrue(candidates.contains(nearest));
+	}
+}
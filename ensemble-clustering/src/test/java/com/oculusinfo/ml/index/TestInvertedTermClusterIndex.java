@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.distance.CosineDistance;
+import com.oculusinfo.ml.feature.bagofwords.distance.ExactTokenMatchDistance;
+import com.oculusinfo.ml.feature.bagofwords.index.InvertedTermClusterIndex;
+
+public class TestInvertedTermClusterIndex {
+	
+	/***
+	 * Random bags over a small vocabulary so that many bags are within the search radii
+	 */
+	private FullScanComparison<BagOfWordsFeature> createComparison(DistanceFunction<BagOfWordsFeature> distance) {
+		return new FullScanComparison<BagOfWordsFeature>("words", distance) {
+			@Override
+			protected BagOfWordsFeature createFeature(Random rnd) {
+				BagOfWordsFeature bag = new BagOfWordsFeature("words");
+				int size = 1 + rnd.nextInt(8);
+				while (bag.getValues().size() < size) {
+					bag.setCount("w" + rnd.nextInt(30), 1 + rnd.nextInt(3));
+				}
+				return bag;
+			}
+		};
+	}
+	
+	@Test
+	public void testCosineCandidates() {
+		createComparison(new CosineDistance(1.0))
+			.compare(new InvertedTermClusterIndex("words"), 1, 500, 200, new double[] { 0.2, 0.5, 0.75, 0.9 });
+	}
+	
+	@Test
+	public void testExactTokenMatchCandidates() {
+		createComparison(new ExactTokenMatchDistance(1.0))
+			.compare(new InvertedTermClusterIndex("words", true), 2, 500, 200, new double[] { 0.2, 0.5, 0.75, 0.9 });
+	}
+}
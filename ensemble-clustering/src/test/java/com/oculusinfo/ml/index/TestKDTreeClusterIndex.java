@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.feature.numeric.index.KDTreeClusterIndex;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+public class TestKDTreeClusterIndex {
+	
+	private NumericVectorFeature randomVector(Random rnd, int dims) {
+		double[] v = new double[dims];
+		for (int i=0; i < dims; i++) v[i] = rnd.nextDouble();
+		NumericVectorFeature f = new NumericVectorFeature("point");
+		f.setValue(v);
+		return f;
+	}
+	
+	@Test
+	public void testCandidatesMatchFullScan() {
+		new FullScanComparison<NumericVectorFeature>("point", new EuclideanDistance(1.0)) {
+			@Override
+			protected NumericVectorFeature createFeature(Random rnd) {
+				return randomVector(rnd, 3);
+			}
+		}.compare(new KDTreeClusterIndex("point"), 1, 1000, 200, new double[] { 0.01, 0.05, 0.1, 0.3 });
+	}
+	
+	@Test
+	public void testNearestCandidates() {
+		Random rnd = new Random(2);
+		EuclideanDistance distance = new EuclideanDistance(1.0);
+		
+		List<Cluster> clusters = new ArrayList<Cluster>();
+		for (int i=0; i < 500; i++) {
+			Cluster c = new Cluster();
+			c.addFeature(randomVector(rnd, 2));
+			clusters.add(c);
+		}
+		KDTreeClusterIndex index = new KDTreeClusterIndex("point");
+		index.build(clusters);
+		
+		for (int q=0; q < 200; q++) {
+			NumericVectorFeature f = randomVector(rnd, 2);
+			Instance inst = new Instance();
+			inst.addFeature(f);
+			
+			Cluster nearest = null;
+			double min = Double.MAX_VALUE;
+			for (Cluster c : clusters) {
+				double d = distance.distance(f, (NumericVectorFeature)c.getFeature("point"));
+				if (d < min) {
+					min = d;
+					nearest = c;
+				}
+			}
+			List<Cluster> candidates = index.getNearestCandidates(inst);
+			Assert.assertTrue(candidates == null || candidates.contains(nearest));
+		}
+	}
+}
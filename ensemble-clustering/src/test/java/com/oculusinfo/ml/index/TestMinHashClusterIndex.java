@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.distance.ExactTokenMatchDistance;
+import com.oculusinfo.ml.stats.FeatureFrequency;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.lsh.MinHashClusterIndex;
+
+public class TestMinHashClusterIndex {
+	
+	private BagOfWordsFeature randomBag(Random rnd, int vocabulary, int size) {
+		BagOfWordsFeature bag = new BagOfWordsFeature("words");
+		while (bag.getValues().size() < size) {
+			bag.setCount("w" + rnd.nextInt(vocabulary), 1);
+		}
+		return bag;
+	}
+	
+	private List<Cluster> createClusters(Random rnd, int count) {
+		List<Cluster> clusters = new ArrayList<Cluster>(count);
+		for (int i=0; i < count; i++) {
+			Cluster c = new Cluster();
+			c.addFeature(randomBag(rnd, 1000, 10 + rnd.nextInt(10)));
+			clusters.add(c);
+		}
+		return clusters;
+	}
+	
+	@Test
+	public void testRadiusAboveThreshold() {
+		Random rnd = new Random(1);
+		MinHashClusterIndex index = new MinHashClusterIndex("words", 0.3);
+		index.build(createClusters(rnd, 10));
+		
+		Instance inst = new Instance();
+		inst.addFeature(randomBag(rnd, 1000, 10));
+		
+		Assert.assertNotNull(index.getCandidates(inst, 0.3));
+		Assert.assertNotNull(index.getCandidates(inst, 0.1));
+		
+		// the index can not cover radii beyond its threshold so every cluster must be searched
+		Assert.assertNull(index.getCandidates(inst, 0.5));
+	}
+	
+	@Test
+	public void testUnindexedAlwaysCandidates() {
+		Random rnd = new Random(2);
+		MinHashClusterIndex index = new MinHashClusterIndex("words", 0.3);
+		List<Cluster> clusters = createClusters(rnd, 20);
+		Cluster missing = new Cluster();
+		clusters.add(missing);
+		index.build(clusters);
+		
+		Instance inst = new Instance();
+		inst.addFeature(randomBag(rnd, 1000, 10));
+		Assert.assertTrue(index.getCandidates(inst, 0.3).contains(missing));
+	}
+	
+	@Test
+	public void testRecall() {
+		double threshold = 0.3;
+		Random rnd = new Random(3);
+		ExactTokenMatchDistance distance = new ExactTokenMatchDistance();
+		
+		MinHashClusterIndex index = new MinHashClusterIndex("words", threshold);
+		List<Cluster> clusters = createClusters(rnd, 500);
+		index.build(clusters);
+		
+		int within = 0, found = 0;
+		for (int q=0; q < 500; q++) {
+			// a query that is a perturbed copy of a cluster so some clusters are within the threshold
+			BagOfWordsFeature source = (BagOfWordsFeature)clusters.get(rnd.nextInt(clusters.size())).getFeature("words");
+			BagOfWordsFeature bag = new BagOfWordsFeature("words");
+			List<String> terms = new ArrayList<String>();
+			for (FeatureFrequency f : source.getValues()) terms.add(f.feature.getName());
+			Collections.shuffle(terms, rnd);
+			int keep = terms.size() - rnd.nextInt(terms.size() / 3 + 1);
+			for (int i=0; i < keep; i++) bag.setCount(terms.get(i), 1);
+			for (int i=rnd.nextInt(3); i > 0; i--) bag.setCount("w" + rnd.nextInt(1000), 1);
+			
+			Instance inst = new Instance();
+			inst.addFeature(bag);
+			
+			Set<Cluster> candidates = Collections.newSetFromMap(new IdentityHashMap<Cluster, Boolean>());
+			candidates.addAll(index.getCandidates(inst, threshold));
+			
+			for (Cluster c : clusters) {
+				if (distance.distance(bag, (BagOfWordsFeature)c.getFeature("words")) <= threshold) {
+					within++;
+					if (candidates.contains(c)) found++;
+				}
+			}
+		}
+		
+		// recall is probabilistic so only the overall fraction found is checked
+		Assert.assertTrue(within > 100);
+		Assert.assertTrue((double)found / within >= index.getRecall());
+	}
+}
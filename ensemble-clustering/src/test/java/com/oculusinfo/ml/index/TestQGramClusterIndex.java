@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import com.oculusinfo.ml.feature.string.index.QGramClusterIndex;
+
+public class TestQGramClusterIndex {
+	private static final String ALPHABET = "abcd";
+	
+	/***
+	 * Random short strings, with queries that are edited copies of earlier strings so that 
+	 * some clusters are within each radius
+	 */
+	private static class StringComparison extends FullScanComparison<StringFeature> {
+		private final List<String> sources = new ArrayList<String>();
+		
+		StringComparison() {
+			super("name", new EditDistance(1.0));
+		}
+		
+		private StringFeature string(String value) {
+			StringFeature f = new StringFeature("name");
+			f.setValue(value);
+			return f;
+		}
+		
+		private char randomChar(Random rnd) {
+			return ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+		}
+		
+		@Override
+		protected StringFeature createFeature(Random rnd) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 1 + rnd.nextInt(15); i > 0; i--) sb.append(randomChar(rnd));
+			sources.add(sb.toString());
+			return string(sb.toString());
+		}
+		
+		@Override
+		protected StringFeature createQuery(Random rnd) {
+			// up to 4 random insertions, deletions and substitutions
+			StringBuilder sb = new StringBuilder(sources.get(rnd.nextInt(sources.size())));
+			for (int e=rnd.nextInt(5); e > 0; e--) {
+				int i = rnd.nextInt(sb.length() + 1);
+				switch (rnd.nextInt(3)) {
+				case 0: sb.insert(i, randomChar(rnd)); break;
+				case 1: if (i < sb.length()) sb.deleteCharAt(i); break;
+				default: if (i < sb.length()) sb.setCharAt(i, randomChar(rnd)); break;
+				}
+			}
+			return string(sb.toString());
+		}
+	}
+	
+	@Test
+	public void testBigramCandidates() {
+		new StringComparison().compare(new QGramClusterIndex("name", 2), 1, 500, 200, new double[] { 0.1, 0.25, 0.4, 0.6 });
+	}
+	
+	@Test
+	public void testTrigramCandidates() {
+		new StringComparison().compare(new QGramClusterIndex("name", 3), 2, 500, 200, new double[] { 0.1, 0.25, 0.4, 0.6 });
+	}
+}
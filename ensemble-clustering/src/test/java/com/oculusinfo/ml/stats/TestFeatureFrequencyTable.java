@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.stats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.feature.string.StringFeature;
+
+public class TestFeatureFrequencyTable {
+	
+	private List<Integer> sortedFrequencies(FeatureFrequencyTable table, int n) {
+		List<Integer> freqs = new ArrayList<Integer>();
+		for (FeatureFrequency f : table.getAll()) {
+			freqs.add(f.frequency);
+		}
+		Collections.sort(freqs, Collections.reverseOrder());
+		return freqs.subList(0, Math.min(n, freqs.size()));
+	}
+	
+	@Test
+	public void testTopN() {
+		FeatureFrequencyTable table = new FeatureFrequencyTable();
+		table.add(new StringFeature("a"));
+		table.incrementBy(new StringFeature("a"), 4);
+		table.add(new StringFeature("b"));
+		table.add(new StringFeature("c"));
+		table.increment(new StringFeature("c"));
+		
+		Collection<FeatureFrequency> top = table.getTopN(2);
+		Assert.assertEquals(2, top.size());
+		Assert.assertEquals("a", top.iterator().next().feature.getName());
+		
+		// the maintained heap follows later changes
+		table.incrementBy(new StringFeature("b"), 10);
+		Assert.assertEquals("b", table.getTopN(1).iterator().next().feature.getName());
+		
+		table.remove(new StringFeature("b"));
+		table.decrementBy(new StringFeature("a"), 4);
+		Assert.assertEquals("c", table.getTopN(1).iterator().next().feature.getName());
+		Assert.assertEquals(2, table.getTopN(5).size());
+	}
+	
+	@Test
+	public void testTopNRandomUpdates() {
+		Random rnd = new Random(42);
+		FeatureFrequencyTable table = new FeatureFrequencyTable();
+		table.getTopN(10);
+		
+		for (int i=0; i < 5000; i++) {
+			StringFeature term = new StringFeature("t" + rnd.nextInt(200));
+			int op = rnd.nextInt(10);
+			if (op < 6) table.add(term);
+			else if (op < 9) table.decrementBy(term, rnd.nextInt(3));
+			else table.remove(term);
+			
+			if (i % 100 == 0) {
+				List<Integer> expected = sortedFrequencies(table, 10);
+				List<Integer> actual = new ArrayList<Integer>();
+				for (FeatureFrequency f : table.getTopN(10)) {
+					actual.add(f.frequency);
+				}
+				Assert.assertEquals(expected, actual);
+			}
+		}
+	}
+}
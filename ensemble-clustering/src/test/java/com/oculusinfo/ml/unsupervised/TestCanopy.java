@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.centroid.BagOfWordsCentroid;
+import com.oculusinfo.ml.feature.bagofwords.distance.ExactTokenMatchDistance;
+import com.oculusinfo.ml.feature.bagofwords.index.InvertedTermClusterIndex;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.canopy.CanopyIndex;
+import com.oculusinfo.ml.unsupervised.cluster.canopy.GeoCellCanopy;
+import com.oculusinfo.ml.unsupervised.cluster.canopy.TokenCanopy;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+
+public class TestCanopy {
+	
+	private Instance geoInstance(double lat, double lon) {
+		Instance inst = new Instance();
+		GeoSpatialFeature geo = new GeoSpatialFeature("location");
+		geo.setValue(lat, lon);
+		inst.addFeature(geo);
+		return inst;
+	}
+	
+	private boolean shareCanopy(Collection<String> a, Collection<String> b) {
+		Set<String> shared = new HashSet<String>(a);
+		shared.retainAll(b);
+		return !shared.isEmpty();
+	}
+	
+	@Test
+	public void testGeoCellCanopy() {
+		double cellSize = 2.0;
+		GeoCellCanopy canopy = new GeoCellCanopy("location", cellSize);
+		HaversineDistance distance = new HaversineDistance(1.0);
+		Random rnd = new Random(11);
+		
+		int near = 0;
+		for (int trial=0; trial < 50000; trial++) {
+			// bias the points towards the poles and the anti-meridian
+			double lat = (rnd.nextBoolean()) ? rnd.nextDouble() * 180 - 90 : Math.signum(rnd.nextDouble() - 0.5) * (90 - rnd.nextDouble() * 3 * cellSize);
+			double lon = (rnd.nextBoolean()) ? rnd.nextDouble() * 360 - 180 : 180 - rnd.nextDouble() * cellSize;
+			
+			double otherLat = Math.max(-90, Math.min(90, lat + (rnd.nextDouble() * 2 - 1) * 1.5 * cellSize));
+			double lonRange = Math.min(180, 1.5 * cellSize / Math.max(0.01, Math.cos(Math.toRadians(lat))));
+			double otherLon = lon + (rnd.nextDouble() * 2 - 1) * lonRange;
+			if (otherLon >= 180) otherLon -= 360;
+			
+			Instance a = geoInstance(lat, lon);
+			Instance b = geoInstance(otherLat, otherLon);
+			
+			// the geo distance functions are normalized by PI
+			double degrees = distance.distance((GeoSpatialFeature)a.getFeature("location"), (GeoSpatialFeature)b.getFeature("location")) * 180;
+			if (degrees < cellSize) {
+				near++;
+				Assert.assertTrue(shareCanopy(canopy.getCanopies(a), canopy.getCanopies(b)));
+			}
+		}
+		Assert.assertTrue(near > 1000);
+		
+		// points on opposite sides of the north pole
+		Assert.assertTrue(shareCanopy(canopy.getCanopies(geoInstance(89.5, 0)), canopy.getCanopies(geoInstance(89.5, 180))));
+		
+		// points far apart do not
+		Assert.assertFalse(shareCanopy(canopy.getCanopies(geoInstance(0, 0)), canopy.getCanopies(geoInstance(0, 90))));
+		Assert.assertTrue(canopy.getCanopies(new Instance()).isEmpty());
+	}
+	
+	@Test
+	public void testTokenCanopy() {
+		TokenCanopy canopy = new TokenCanopy("name");
+		
+		Instance a = new Instance();
+		StringFeature s = new StringFeature("name");
+		s.setValue("Oculus");
+		a.addFeature(s);
+		
+		Instance b = new Instance();
+		s = new StringFeature("name");
+		s.setValue("oculus");
+		b.addFeature(s);
+		
+		Assert.assertEquals(canopy.getCanopies(a), canopy.getCanopies(b));
+		
+		Instance c = new Instance();
+		BagOfWordsFeature bag = new BagOfWordsFeature("name");
+		bag.setCount("Info", 1);
+		bag.setCount("Oculus", 2);
+		c.addFeature(bag);
+		
+		Assert.assertTrue(shareCanopy(canopy.getCanopies(a), canopy.getCanopies(c)));
+		Assert.assertEquals(2, canopy.getCanopies(c).size());
+		Assert.assertTrue(canopy.getCanopies(new Instance()).isEmpty());
+	}
+	
+	@Test
+	public void testCanopyIndexRemovesStaleCentroidKeys() {
+		CanopyIndex index = new CanopyIndex(new GeoCellCanopy("location", 1.0));
+		
+		Cluster cluster = new Cluster();
+		cluster.addFeature(new GeoSpatialFeature("location"));
+		((GeoSpatialFeature)cluster.getFeature("location")).setValue(10, 10);
+		index.update(cluster);
+		
+		List<Cluster> all = Collections.singletonList(cluster);
+		Assert.assertEquals(1, index.getCandidates(geoInstance(10, 10), all).size());
+		
+		// the centroid moves away and the cluster is removed from the canopies it left
+		((GeoSpatialFeature)cluster.getFeature("location")).setValue(40, 40);
+		index.update(cluster);
+		Assert.assertTrue(index.getCandidates(geoInstance(10, 10), all).isEmpty());
+		Assert.assertEquals(1, index.getCandidates(geoInstance(40, 40), all).size());
+		
+		// canopies of members are kept
+		index.add(cluster, geoInstance(20, 20));
+		((GeoSpatialFeature)cluster.getFeature("location")).setValue(30, 30);
+		index.update(cluster);
+		Assert.assertEquals(1, index.getCandidates(geoInstance(20, 20), all).size());
+		Assert.assertTrue(index.getCandidates(geoInstance(40, 40), all).isEmpty());
+		
+		index.remove(cluster);
+		Assert.assertTrue(index.getCandidates(geoInstance(20, 20), all).isEmpty());
+	}
+	
+	private Set<List<String>> cluster(DataSet ds, boolean canopy, boolean clusterIndex) {
+		ThresholdClusterer clusterer = new ThresholdClusterer();
+		clusterer.setThreshold(0.5);
+		clusterer.registerFeatureType(
+				"words", 
+				BagOfWordsCentroid.class, 
+				new ExactTokenMatchDistance(1.0));
+		if (canopy) clusterer.setCanopy(new TokenCanopy("words"));
+		if (clusterIndex) clusterer.setClusterIndex(new InvertedTermClusterIndex("words", true));
+		
+		ClusterResult result = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		Set<List<String>> assignments = new HashSet<List<String>>();
+		for (Cluster c : result) {
+			List<String> members = new ArrayList<String>();
+			for (Instance inst : c.getMembers()) {
+				members.add(inst.getId());
+			}
+			Collections.sort(members);
+			assignments.add(members);
+		}
+		return assignments;
+	}
+	
+	@Test
+	public void testCanopyWithClusterIndex() {
+		DataSet ds = new DataSet();
+		Random rnd = new Random(5);
+		for (int i=0; i < 1000; i++) {
+			Instance inst = new Instance("" + i);
+			BagOfWordsFeature bag = new BagOfWordsFeature("words");
+			for (int j = 1 + rnd.nextInt(3); j > 0; j--) {
+				bag.setCount("w" + rnd.nextInt(50), 1);
+			}
+			inst.addFeature(bag);
+			ds.add(inst);
+		}
+		
+		// words not shared are at a distance of 1 so the canopy and the index are both exact
+		Set<List<String>> expected = cluster(ds, false, false);
+		Assert.assertTrue(expected.size() > 1);
+		Assert.assertEquals(expected, cluster(ds, true, false));
+		Assert.assertEquals(expected, cluster(ds, true, true));
+	}
+}
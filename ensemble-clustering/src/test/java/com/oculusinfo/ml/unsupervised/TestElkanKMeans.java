@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.ElkanKMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+
+public class TestElkanKMeans {
+	
+	private DataSet createDataSet(long seed, int size) {
+		DataSet ds = new DataSet();
+		Random rnd = new Random(seed);
+		double[][] centers = { {0.2, 0.2}, {0.8, 0.3}, {0.5, 0.8}, {0.3, 0.6} };
+		
+		for (int i = 0; i < size; i++) {
+			double[] center = centers[i % centers.length];
+			Instance inst = new Instance("" + i);
+			NumericVectorFeature v = new NumericVectorFeature("point");
+			v.setValue( new double[] { center[0] + 0.1 * rnd.nextGaussian(), center[1] + 0.1 * rnd.nextGaussian() } );
+			inst.addFeature(v);
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	private Set<List<String>> cluster(KMeans clusterer, DataSet ds) {
+		clusterer.setSeed(7);
+		clusterer.registerFeatureType(
+				"point", 
+				MeanNumericVectorCentroid.class, 
+				new EuclideanDistance(1.0));
+		
+		ClusterResult result = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		Set<List<String>> assignments = new HashSet<List<String>>();
+		for (Cluster c : result) {
+			List<String> members = new ArrayList<String>();
+			for (Instance inst : c.getMembers()) {
+				members.add(inst.getId());
+			}
+			Collections.sort(members);
+			assignments.add(members);
+		}
+		return assignments;
+	}
+	
+	@Test
+	public void testSameAssignmentsAsKMeans() {
+		DataSet ds = createDataSet(42, 4000);
+		
+		Set<List<String>> kmeans = cluster(new KMeans(4, 100, false), ds);
+		Set<List<String>> elkan = cluster(new ElkanKMeans(4, 100, false), ds);
+		
+		Assert.assertTrue(kmeans.size() > 1);
+		Assert.assertEquals(kmeans, elkan);
+	}
+	
+	@Test
+	public void testLowerBoundBudget() {
+		DataSet ds = createDataSet(42, 4000);
+		
+		ElkanKMeans limited = new ElkanKMeans(4, 100, false);
+		limited.setMaxLowerBounds(4000);
+		
+		Set<List<String>> kmeans = cluster(new KMeans(4, 100, false), ds);
+		Set<List<String>> elkan = cluster(limited, ds);
+		
+		Assert.assertEquals(kmeans, elkan);
+	}
+}
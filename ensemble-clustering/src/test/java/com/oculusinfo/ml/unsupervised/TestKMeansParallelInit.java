@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.unsupervised.cluster.DistancePlan;
+import com.oculusinfo.ml.unsupervised.cluster.dpmeans.DPMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeansParallelInit;
+
+public class TestKMeansParallelInit {
+	private static final double[][] CENTERS = { {0.1, 0.1}, {0.9, 0.1}, {0.5, 0.9}, {0.1, 0.9}, {0.9, 0.9} };
+	
+	private Instance[] createInstances(long seed, int size) {
+		Instance[] instances = new Instance[size];
+		Random rnd = new Random(seed);
+		
+		for (int i = 0; i < size; i++) {
+			double[] center = CENTERS[i % CENTERS.length];
+			Instance inst = new Instance("" + i);
+			NumericVectorFeature v = new NumericVectorFeature("point");
+			v.setValue( new double[] { center[0] + 0.02 * rnd.nextGaussian(), center[1] + 0.02 * rnd.nextGaussian() } );
+			inst.addFeature(v);
+			instances[i] = inst;
+		}
+		return instances;
+	}
+	
+	private DistancePlan createPlan() {
+		KMeans clusterer = new KMeans(CENTERS.length, 1, false);
+		clusterer.registerFeatureType(
+				"point", 
+				MeanNumericVectorCentroid.class, 
+				new EuclideanDistance(1.0));
+		return clusterer.getDistancePlan();
+	}
+	
+	private List<Instance> select(Instance[] instances, long seed, ExecutorService exec) {
+		KMeansParallelInit init = new KMeansParallelInit();
+		init.setSeed(seed);
+		return init.select(instances, CENTERS.length, createPlan(), false, exec);
+	}
+	
+	@Test
+	public void testSeparatedClusters() {
+		Instance[] instances = createInstances(42, 5000);
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			List<Instance> kmeans = select(instances, 7, exec);
+			
+			// one initial k-mean is selected from each separated cluster
+			Assert.assertEquals(CENTERS.length, kmeans.size());
+			Set<Integer> centers = new HashSet<Integer>();
+			for (Instance inst : kmeans) {
+				centers.add(Integer.parseInt(inst.getId()) % CENTERS.length);
+			}
+			Assert.assertEquals(CENTERS.length, centers.size());
+		}
+		finally {
+			exec.shutdown();
+		}
+	}
+	
+	@Test
+	public void testSeed() {
+		Instance[] instances = createInstances(42, 5000);
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			Assert.assertEquals(select(instances, 7, exec), select(instances, 7, exec));
+		}
+		finally {
+			exec.shutdown();
+		}
+	}
+	
+	@Test
+	public void testFewerInstancesThanK() {
+		Instance[] instances = createInstances(42, 3);
+		ExecutorService exec = Executors.newFixedThreadPool(2);
+		try {
+			List<Instance> kmeans = select(instances, 7, exec);
+			Assert.assertEquals(instances.length, new HashSet<Instance>(kmeans).size());
+		}
+		finally {
+			exec.shutdown();
+		}
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testDPMeansRejectsParallelInit() {
+		new DPMeans(10, false).setParallelInit(new KMeansParallelInit());
+	}
+}
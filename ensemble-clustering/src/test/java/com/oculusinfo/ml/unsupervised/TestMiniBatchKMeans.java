@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.MiniBatchKMeans;
+
+public class TestMiniBatchKMeans {
+	private static final double[][] CENTERS = { {0.1, 0.1}, {0.9, 0.1}, {0.5, 0.9} };
+	
+	private DataSet createDataSet(long seed, int size) {
+		DataSet ds = new DataSet();
+		Random rnd = new Random(seed);
+		
+		for (int i = 0; i < size; i++) {
+			double[] center = CENTERS[i % CENTERS.length];
+			Instance inst = new Instance("" + i);
+			NumericVectorFeature v = new NumericVectorFeature("point");
+			v.setValue( new double[] { center[0] + 0.02 * rnd.nextGaussian(), center[1] + 0.02 * rnd.nextGaussian() } );
+			inst.addFeature(v);
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	@Test
+	public void testSeparatedClusters() {
+		DataSet ds = createDataSet(42, 3000);
+		
+		MiniBatchKMeans clusterer = new MiniBatchKMeans(3, 100, 20, false);
+		clusterer.setSeed(7);
+		clusterer.registerFeatureType(
+				"point", 
+				MeanNumericVectorCentroid.class, 
+				new EuclideanDistance(1.0));
+		
+		ClusterResult result = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		// every instance is assigned once and each cluster holds the instances of a single center
+		Set<String> assigned = new HashSet<String>();
+		Set<Integer> centers = new HashSet<Integer>();
+		int count = 0;
+		for (Cluster c : result) {
+			Integer center = null;
+			for (Instance inst : c.getMembers()) {
+				int idx = Integer.parseInt(inst.getId()) % CENTERS.length;
+				if (center == null) center = idx;
+				Assert.assertEquals(center.intValue(), idx);
+				assigned.add(inst.getId());
+			}
+			if (center != null) centers.add(center);
+			
+			double[] mean = ((NumericVectorFeature)c.getFeature("point")).getValue();
+			if (center != null) {
+				Assert.assertEquals(CENTERS[center][0], mean[0], 0.01);
+				Assert.assertEquals(CENTERS[center][1], mean[1], 0.01);
+			}
+			count += c.size();
+		}
+		Assert.assertEquals(CENTERS.length, centers.size());
+		Assert.assertEquals(ds.size(), count);
+		Assert.assertEquals(ds.size(), assigned.size());
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.numeric.NumericVectorFeature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.dpmeans.DPMeans;
+
+public class TestParallelAssignment {
+	
+	private DataSet createDataSet(long seed, int size) {
+		DataSet ds = new DataSet();
+		Random rnd = new Random(seed);
+		
+		for (int i = 0; i < size; i++) {
+			Instance inst = new Instance("" + i);
+			NumericVectorFeature v = new NumericVectorFeature("point");
+			v.setValue( new double[] { rnd.nextDouble(), rnd.nextDouble() } );
+			inst.addFeature(v);
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	private Set<List<String>> cluster(DataSet ds, int threads) {
+		DPMeans clusterer = new DPMeans(1, false);
+		clusterer.setThreshold(0.2);
+		clusterer.setThreadCount(threads);
+		clusterer.registerFeatureType(
+				"point", 
+				MeanNumericVectorCentroid.class, 
+				new EuclideanDistance(1.0));
+		
+		// seed with a fixed first cluster so both runs start from the same state
+		List<Cluster> clusters = new LinkedList<Cluster>();
+		Cluster seed = clusterer.createCluster();
+		seed.add(ds.get("0"));
+		seed.updateCentroid();
+		clusters.add(seed);
+		
+		ClusterResult result = clusterer.doIncrementalCluster(ds, clusters);
+		clusterer.terminate();
+		
+		Set<List<String>> assignments = new HashSet<List<String>>();
+		for (Cluster c : result) {
+			List<String> members = new ArrayList<String>();
+			for (Instance inst : c.getMembers()) {
+				members.add(inst.getId());
+			}
+			Collections.sort(members);
+			assignments.add(members);
+		}
+		return assignments;
+	}
+	
+	@Test
+	public void testSameAssignmentsAcrossThreads() {
+		DataSet ds = createDataSet(42, 5000);
+		
+		Set<List<String>> single = cluster(ds, 1);
+		Set<List<String>> parallel = cluster(ds, 4);
+		
+		Assert.assertTrue(single.size() > 1);
+		Assert.assertEquals(single, parallel);
+	}
+}